@@ -0,0 +1,13 @@
+package android.content;
+
+import android.content.res.Configuration;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public interface ComponentCallbacks {
+
+    void onConfigurationChanged(Configuration newConfig);
+
+    void onLowMemory();
+}
@@ -0,0 +1,24 @@
+package android.content;
+
+import android.content.res.Resources;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class Context {
+
+    public Resources getResources() {
+        return new Resources();
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    /** The JVM never reports memory pressure, the callbacks are not kept */
+    public void registerComponentCallbacks(ComponentCallbacks callbacks) {
+    }
+
+    public void unregisterComponentCallbacks(ComponentCallbacks callbacks) {
+    }
+}
@@ -0,0 +1,7 @@
+package android.content.res;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class Configuration {
+}
@@ -0,0 +1,13 @@
+package android.content.res;
+
+import android.graphics.drawable.Drawable;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class Resources {
+
+    public Drawable getDrawable(int id) {
+        return new Drawable();
+    }
+}
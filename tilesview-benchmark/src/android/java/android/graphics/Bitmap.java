@@ -0,0 +1,112 @@
+package android.graphics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ * The bytes of the bitmaps not recycled yet are counted, to measure the memory held by the library.
+ */
+public class Bitmap {
+
+    public enum Config {
+        ALPHA_8(1), RGB_565(2), ARGB_8888(4);
+
+        final int bytesPerPixel;
+
+        Config(int bytesPerPixel) {
+            this.bytesPerPixel = bytesPerPixel;
+        }
+    }
+
+    private static final AtomicLong allocatedBytes = new AtomicLong();
+    private static final AtomicLong peakAllocatedBytes = new AtomicLong();
+
+    private final int width, height;
+    private final Config config;
+    private byte[] pixels;
+    private boolean hasMipMap;
+
+    private Bitmap(int width, int height, Config config) {
+        this.width = width;
+        this.height = height;
+        this.config = config;
+        this.pixels = new byte[width * height * config.bytesPerPixel];
+        long bytes = allocatedBytes.addAndGet(pixels.length);
+        long peak;
+        while (bytes > (peak = peakAllocatedBytes.get())) {
+            if (peakAllocatedBytes.compareAndSet(peak, bytes)) break;
+        }
+    }
+
+    /** Bytes of the bitmaps not recycled yet */
+    public static long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /** Highest value of {@link #getAllocatedBytes()} since the last reset */
+    public static long getPeakAllocatedBytes() {
+        return peakAllocatedBytes.get();
+    }
+
+    public static void resetPeakAllocatedBytes() {
+        peakAllocatedBytes.set(allocatedBytes.get());
+    }
+
+    public static Bitmap createBitmap(int width, int height, Config config) {
+        return new Bitmap(width, height, config);
+    }
+
+    public static Bitmap createScaledBitmap(Bitmap src, int width, int height, boolean filter) {
+        return new Bitmap(width, height, src.config);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    public int getRowBytes() {
+        return width * config.bytesPerPixel;
+    }
+
+    public int getByteCount() {
+        return getRowBytes() * height;
+    }
+
+    public int getPixel(int x, int y) {
+        return pixels[(y * width + x) * config.bytesPerPixel];
+    }
+
+    public void eraseColor(int color) {
+        java.util.Arrays.fill(pixels, (byte) color);
+    }
+
+    public void setHasMipMap(boolean hasMipMap) {
+        this.hasMipMap = hasMipMap;
+    }
+
+    public boolean hasMipMap() {
+        return hasMipMap;
+    }
+
+    public boolean isRecycled() {
+        return pixels == null;
+    }
+
+    public synchronized void recycle() {
+        if (pixels == null) return;
+        allocatedBytes.addAndGet(-pixels.length);
+        pixels = null;
+    }
+
+    byte[] getPixels() {
+        return pixels;
+    }
+}
@@ -0,0 +1,34 @@
+package android.graphics;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class BitmapFactory {
+
+    public static class Options {
+        public Bitmap.Config inPreferredConfig;
+    }
+
+    /**
+     * Reads the whole stream, and returns a 256x256 bitmap if it's not empty.
+     */
+    public static Bitmap decodeStream(InputStream inputStream, Rect outPadding, Options options) {
+        int size = 0;
+        byte[] buffer = new byte[4096];
+        try {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                size += read;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        if (size == 0) return null;
+        Bitmap.Config config = options != null && options.inPreferredConfig != null ?
+                options.inPreferredConfig : Bitmap.Config.ARGB_8888;
+        return Bitmap.createBitmap(256, 256, config);
+    }
+}
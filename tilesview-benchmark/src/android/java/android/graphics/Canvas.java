@@ -0,0 +1,78 @@
+package android.graphics;
+
+import java.util.Arrays;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ * Only drawColor() writes to the bitmap, so that tiles are not free to render.
+ */
+public class Canvas {
+
+    private Bitmap bitmap;
+
+    public Canvas() {
+    }
+
+    public Canvas(Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    public void setBitmap(Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    public int getWidth() {
+        return bitmap != null ? bitmap.getWidth() : 0;
+    }
+
+    public int getHeight() {
+        return bitmap != null ? bitmap.getHeight() : 0;
+    }
+
+    public void drawColor(int color) {
+        if (bitmap != null && !bitmap.isRecycled()) {
+            Arrays.fill(bitmap.getPixels(), (byte) color);
+        }
+    }
+
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+    }
+
+    public void drawRect(RectF rect, Paint paint) {
+    }
+
+    public void drawRect(Rect rect, Paint paint) {
+    }
+
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+    }
+
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+    }
+
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+    }
+
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+    }
+
+    public void drawText(String text, float x, float y, Paint paint) {
+    }
+
+    public boolean clipRect(float left, float top, float right, float bottom) {
+        return true;
+    }
+
+    public int save() {
+        return 0;
+    }
+
+    public void restore() {
+    }
+
+    public void translate(float dx, float dy) {
+    }
+
+    public void scale(float sx, float sy) {
+    }
+}
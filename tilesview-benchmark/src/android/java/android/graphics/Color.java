@@ -0,0 +1,16 @@
+package android.graphics;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class Color {
+
+    public static final int BLACK = 0xFF000000;
+    public static final int GRAY = 0xFF888888;
+    public static final int WHITE = 0xFFFFFFFF;
+    public static final int TRANSPARENT = 0;
+
+    public static int argb(int alpha, int red, int green, int blue) {
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+}
@@ -0,0 +1,54 @@
+package android.graphics;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class Paint {
+
+    public static final int FILTER_BITMAP_FLAG = 2;
+
+    public enum Align {LEFT, CENTER, RIGHT}
+
+    public enum Style {FILL, STROKE, FILL_AND_STROKE}
+
+    private float textSize;
+
+    public Paint() {
+    }
+
+    public Paint(int flags) {
+    }
+
+    public Paint(Paint paint) {
+        this.textSize = paint.textSize;
+    }
+
+    public void setAntiAlias(boolean antiAlias) {
+    }
+
+    public void setColor(int color) {
+    }
+
+    public void setAlpha(int alpha) {
+    }
+
+    public void setTextSize(float textSize) {
+        this.textSize = textSize;
+    }
+
+    public float getTextSize() {
+        return textSize;
+    }
+
+    public void setTextAlign(Align align) {
+    }
+
+    public void setStyle(Style style) {
+    }
+
+    public void setStrokeWidth(float width) {
+    }
+
+    public void setFilterBitmap(boolean filter) {
+    }
+}
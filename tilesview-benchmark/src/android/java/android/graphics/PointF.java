@@ -0,0 +1,14 @@
+package android.graphics;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class PointF {
+
+    public float x, y;
+
+    public void set(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+}
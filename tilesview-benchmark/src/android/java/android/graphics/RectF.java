@@ -0,0 +1,42 @@
+package android.graphics;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class RectF {
+
+    public float left, top, right, bottom;
+
+    public RectF() {
+    }
+
+    public void set(float left, float top, float right, float bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public void inset(float dx, float dy) {
+        left += dx;
+        top += dy;
+        right -= dx;
+        bottom -= dy;
+    }
+
+    public float centerX() {
+        return (left + right) / 2f;
+    }
+
+    public float centerY() {
+        return (top + bottom) / 2f;
+    }
+
+    public float width() {
+        return right - left;
+    }
+
+    public float height() {
+        return bottom - top;
+    }
+}
@@ -0,0 +1,17 @@
+package android.graphics.drawable;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class ColorDrawable extends Drawable {
+
+    private final int color;
+
+    public ColorDrawable(int color) {
+        this.color = color;
+    }
+
+    public int getColor() {
+        return color;
+    }
+}
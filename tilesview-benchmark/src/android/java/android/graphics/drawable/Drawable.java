@@ -0,0 +1,27 @@
+package android.graphics.drawable;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class Drawable {
+
+    private final Rect bounds = new Rect();
+
+    public Rect getBounds() {
+        return bounds;
+    }
+
+    public void setBounds(int left, int top, int right, int bottom) {
+        bounds.set(left, top, right, bottom);
+    }
+
+    public void setBounds(Rect bounds) {
+        this.bounds.set(bounds);
+    }
+
+    public void draw(Canvas canvas) {
+    }
+}
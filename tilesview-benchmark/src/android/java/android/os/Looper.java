@@ -0,0 +1,89 @@
+package android.os;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ * There's only the main looper, and it runs on the thread calling loopOnce() or loopUntil().
+ */
+public final class Looper {
+
+    private static final Looper mainLooper = new Looper();
+
+    private final PriorityQueue<Message> messages = new PriorityQueue<Message>();
+
+    private long nextSequence;
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return mainLooper;
+    }
+
+    /** Runs the action on the looper thread at the given time, can be called from any thread */
+    public synchronized void post(Runnable action, long uptimeMillis) {
+        messages.offer(new Message(action, uptimeMillis, nextSequence++));
+        notifyAll();
+    }
+
+    public synchronized void removeCallbacks(Runnable action) {
+        Iterator<Message> iterator = messages.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().action == action) iterator.remove();
+        }
+    }
+
+    /**
+     * Runs the next message, waiting for it until the given time at most.
+     * @return False if there was no message to run before that time.
+     */
+    public boolean loopOnce(long untilUptimeMillis) throws InterruptedException {
+        Runnable action;
+        synchronized (this) {
+            while (true) {
+                long now = SystemClock.uptimeMillis();
+                Message next = messages.peek();
+                if (next != null && next.uptimeMillis <= now) {
+                    action = messages.poll().action;
+                    break;
+                }
+                if (now >= untilUptimeMillis) return false;
+                long wakeUpTime = next != null ? Math.min(next.uptimeMillis, untilUptimeMillis) : untilUptimeMillis;
+                wait(wakeUpTime - now);
+            }
+        }
+        action.run();
+        return true;
+    }
+
+    /** Runs the messages until the given time */
+    public void loopUntil(long uptimeMillis) throws InterruptedException {
+        while (loopOnce(uptimeMillis)) ;
+    }
+
+    /** Drops all pending messages */
+    public synchronized void clear() {
+        messages.clear();
+    }
+
+    private static class Message implements Comparable<Message> {
+
+        final Runnable action;
+        final long uptimeMillis;
+        final long sequence;
+
+        Message(Runnable action, long uptimeMillis, long sequence) {
+            this.action = action;
+            this.uptimeMillis = uptimeMillis;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Message other) {
+            if (uptimeMillis != other.uptimeMillis) return uptimeMillis < other.uptimeMillis ? -1 : 1;
+            return sequence < other.sequence ? -1 : sequence > other.sequence ? 1 : 0;
+        }
+    }
+}
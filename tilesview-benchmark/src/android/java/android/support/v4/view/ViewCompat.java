@@ -0,0 +1,13 @@
+package android.support.v4.view;
+
+import android.view.View;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class ViewCompat {
+
+    public static void postOnAnimation(View view, Runnable action) {
+        view.postOnAnimation(action);
+    }
+}
@@ -0,0 +1,99 @@
+package android.view;
+
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ * Frames are aligned on a 60Hz vsync. Each frame runs the animation callbacks
+ * then draws the invalidated views, on the main looper.
+ */
+public final class Choreographer {
+
+    public static final long FRAME_INTERVAL_MILLIS = 16;
+
+    private static final Choreographer instance = new Choreographer();
+
+    private final List<Runnable> animationCallbacks = new ArrayList<Runnable>();
+
+    private final List<View> invalidatedViews = new ArrayList<View>();
+
+    private final Canvas canvas = new Canvas();
+
+    private boolean frameScheduled;
+
+    private final Runnable doFrame = new Runnable() {
+        @Override
+        public void run() {
+            doFrame();
+        }
+    };
+
+    private Choreographer() {
+    }
+
+    public static Choreographer getInstance() {
+        return instance;
+    }
+
+    synchronized void postAnimationCallback(Runnable action) {
+        animationCallbacks.add(action);
+        scheduleFrame();
+    }
+
+    synchronized void removeAnimationCallback(Runnable action) {
+        while (animationCallbacks.remove(action)) ;
+    }
+
+    synchronized void invalidate(View view) {
+        if (!invalidatedViews.contains(view)) invalidatedViews.add(view);
+        scheduleFrame();
+    }
+
+    /** True while an animation is running */
+    public synchronized boolean hasAnimationCallbacks() {
+        return !animationCallbacks.isEmpty();
+    }
+
+    /** Forgets the pending callbacks and draws */
+    public synchronized void clear() {
+        animationCallbacks.clear();
+        invalidatedViews.clear();
+        frameScheduled = false;
+        Looper.getMainLooper().removeCallbacks(doFrame);
+    }
+
+    /** Must be called while holding the lock */
+    private void scheduleFrame() {
+        if (frameScheduled) return;
+        frameScheduled = true;
+        long now = SystemClock.uptimeMillis();
+        Looper.getMainLooper().post(doFrame, (now / FRAME_INTERVAL_MILLIS + 1) * FRAME_INTERVAL_MILLIS);
+    }
+
+    private void doFrame() {
+        Runnable[] callbacks;
+        synchronized (this) {
+            frameScheduled = false;
+            callbacks = animationCallbacks.toArray(new Runnable[animationCallbacks.size()]);
+            animationCallbacks.clear();
+        }
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+
+        // Views invalidated by the animations are drawn in this frame
+        View[] views;
+        synchronized (this) {
+            views = invalidatedViews.toArray(new View[invalidatedViews.size()]);
+            invalidatedViews.clear();
+        }
+        for (View view : views) {
+            view.draw(canvas);
+        }
+    }
+}
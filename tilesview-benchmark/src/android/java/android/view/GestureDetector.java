@@ -0,0 +1,44 @@
+package android.view;
+
+import android.content.Context;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class GestureDetector {
+
+    public interface OnGestureListener {
+        boolean onDown(MotionEvent e);
+
+        void onShowPress(MotionEvent e);
+
+        boolean onSingleTapUp(MotionEvent e);
+
+        boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY);
+
+        void onLongPress(MotionEvent e);
+
+        boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY);
+    }
+
+    public interface OnDoubleTapListener {
+        boolean onSingleTapConfirmed(MotionEvent e);
+
+        boolean onDoubleTap(MotionEvent e);
+
+        boolean onDoubleTapEvent(MotionEvent e);
+    }
+
+    public GestureDetector(Context context, OnGestureListener listener) {
+    }
+
+    public void setOnDoubleTapListener(OnDoubleTapListener listener) {
+    }
+
+    public void setIsLongpressEnabled(boolean enabled) {
+    }
+
+    public boolean onTouchEvent(MotionEvent event) {
+        return false;
+    }
+}
@@ -0,0 +1,48 @@
+package android.view;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class MotionEvent {
+
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+
+    private long downTime, eventTime;
+    private int action;
+    private float x, y;
+
+    public static MotionEvent obtain(long downTime, long eventTime, int action, float x, float y, int metaState) {
+        MotionEvent event = new MotionEvent();
+        event.downTime = downTime;
+        event.eventTime = eventTime;
+        event.action = action;
+        event.x = x;
+        event.y = y;
+        return event;
+    }
+
+    public void recycle() {
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public int getActionMasked() {
+        return action;
+    }
+
+    public long getDownTime() {
+        return downTime;
+    }
+
+    public long getEventTime() {
+        return eventTime;
+    }
+}
@@ -0,0 +1,40 @@
+package android.view;
+
+import android.content.Context;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public class ScaleGestureDetector {
+
+    public interface OnScaleGestureListener {
+        boolean onScale(ScaleGestureDetector detector);
+
+        boolean onScaleBegin(ScaleGestureDetector detector);
+
+        void onScaleEnd(ScaleGestureDetector detector);
+    }
+
+    public ScaleGestureDetector(Context context, OnScaleGestureListener listener) {
+    }
+
+    public float getFocusX() {
+        return 0;
+    }
+
+    public float getFocusY() {
+        return 0;
+    }
+
+    public float getScaleFactor() {
+        return 1;
+    }
+
+    public long getEventTime() {
+        return 0;
+    }
+
+    public boolean onTouchEvent(MotionEvent event) {
+        return false;
+    }
+}
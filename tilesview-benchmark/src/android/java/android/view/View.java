@@ -0,0 +1,146 @@
+package android.view;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ * Posted actions and draws run on the main looper, layout is done with layout().
+ */
+public class View {
+
+    public static final int VISIBLE = 0;
+    public static final int INVISIBLE = 4;
+
+    private final Context context;
+    private int width, height;
+    private Drawable background;
+
+    public View(Context context) {
+        this(context, null);
+    }
+
+    public View(Context context, AttributeSet attrs) {
+        this.context = context;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public Resources getResources() {
+        return context.getResources();
+    }
+
+    /**
+     * Sizes the view, calling onSizeChanged().
+     */
+    public void layout(int width, int height) {
+        int oldWidth = this.width, oldHeight = this.height;
+        this.width = width;
+        this.height = height;
+        onSizeChanged(width, height, oldWidth, oldHeight);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPaddingLeft() {
+        return 0;
+    }
+
+    public int getPaddingTop() {
+        return 0;
+    }
+
+    public int getPaddingRight() {
+        return 0;
+    }
+
+    public int getPaddingBottom() {
+        return 0;
+    }
+
+    public Drawable getBackground() {
+        return background;
+    }
+
+    public void setBackgroundDrawable(Drawable background) {
+        this.background = background;
+    }
+
+    public void setBackgroundColor(int color) {
+    }
+
+    public void setBackgroundResource(int resId) {
+    }
+
+    public void invalidate() {
+        Choreographer.getInstance().invalidate(this);
+    }
+
+    public void postInvalidate() {
+        invalidate();
+    }
+
+    public void postInvalidateDelayed(long delayMilliseconds) {
+        postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                invalidate();
+            }
+        }, delayMilliseconds);
+    }
+
+    public boolean post(Runnable action) {
+        return postDelayed(action, 0);
+    }
+
+    public boolean postDelayed(Runnable action, long delayMillis) {
+        Looper.getMainLooper().post(action, SystemClock.uptimeMillis() + delayMillis);
+        return true;
+    }
+
+    public void postOnAnimation(Runnable action) {
+        Choreographer.getInstance().postAnimationCallback(action);
+    }
+
+    public boolean removeCallbacks(Runnable action) {
+        Looper.getMainLooper().removeCallbacks(action);
+        Choreographer.getInstance().removeAnimationCallback(action);
+        return true;
+    }
+
+    public void draw(Canvas canvas) {
+        if (width > 0 && height > 0) onDraw(canvas);
+    }
+
+    public boolean onTouchEvent(MotionEvent event) {
+        return false;
+    }
+
+    protected void onDraw(Canvas canvas) {
+    }
+
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+    }
+
+    protected void onAttachedToWindow() {
+    }
+
+    protected void onDetachedFromWindow() {
+    }
+
+    protected void onWindowVisibilityChanged(int visibility) {
+    }
+}
@@ -0,0 +1,9 @@
+package android.view.animation;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ */
+public interface Interpolator {
+
+    float getInterpolation(float input);
+}
@@ -0,0 +1,67 @@
+package android.widget;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+/*
+ * Lightweight stand-in of the Android class, only used to run the library on the JVM for benchmarks.
+ * Flings decelerate exponentially, which is close enough to the real spline for a replay.
+ */
+public class OverScroller {
+
+    /** Time constant of the deceleration, in seconds */
+    private static final float FRICTION_TIME = 0.35f;
+
+    /** Velocity in pixels/s under which the fling stops */
+    private static final float MIN_VELOCITY = 20f;
+
+    private int startX, startY, currX, currY;
+    private float velocityX, velocityY;
+    private long startTime, duration;
+    private boolean finished = true;
+
+    public OverScroller(Context context) {
+    }
+
+    public void fling(int startX, int startY, int velocityX, int velocityY,
+                      int minX, int maxX, int minY, int maxY) {
+        this.startX = this.currX = startX;
+        this.startY = this.currY = startY;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        float velocity = (float) Math.hypot(velocityX, velocityY);
+        this.duration = velocity > MIN_VELOCITY ?
+                (long) (FRICTION_TIME * Math.log(velocity / MIN_VELOCITY) * 1000) : 0;
+        this.startTime = SystemClock.uptimeMillis();
+        this.finished = duration == 0;
+    }
+
+    public boolean computeScrollOffset() {
+        if (finished) return false;
+        long elapsed = SystemClock.uptimeMillis() - startTime;
+        if (elapsed >= duration) {
+            elapsed = duration;
+            finished = true;
+        }
+        float distanceRatio = FRICTION_TIME * (1 - (float) Math.exp(-elapsed / 1000f / FRICTION_TIME));
+        currX = startX + Math.round(velocityX * distanceRatio);
+        currY = startY + Math.round(velocityY * distanceRatio);
+        return true;
+    }
+
+    public void forceFinished(boolean finished) {
+        this.finished = finished;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getCurrX() {
+        return currX;
+    }
+
+    public int getCurrY() {
+        return currY;
+    }
+}
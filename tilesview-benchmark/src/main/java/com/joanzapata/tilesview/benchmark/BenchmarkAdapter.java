@@ -0,0 +1,69 @@
+package com.joanzapata.tilesview.benchmark;
+
+import android.graphics.Canvas;
+import android.graphics.PointF;
+import android.graphics.RectF;
+
+import com.joanzapata.tilesview.AnimationCallback;
+import com.joanzapata.tilesview.TilesView;
+import com.joanzapata.tilesview.TilesViewAdapter;
+
+/**
+ * A thread safe adapter which only fills the tiles with a color,
+ * so that benchmarks measure the library and not the content.
+ */
+public class BenchmarkAdapter implements TilesViewAdapter {
+
+    private final int color;
+
+    public BenchmarkAdapter(int color) {
+        this.color = color;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public void drawTile(Canvas canvas, float xRatio, float yRatio, float widthRatio, float heightRatio,
+                         float contentInitialWidth, float contentInitialHeight, float scale) {
+        canvas.drawColor(color);
+    }
+
+    @Override
+    public void attachTilesView(TilesView tilesView) {
+    }
+
+    @Override
+    public void getBounds(RectF bounds) {
+    }
+
+    @Override
+    public void onClick(float xRatio, float yRatio, float contentInitialWidth, float contentInitialHeight, float scale) {
+    }
+
+    @Override
+    public void getPosition(float x, float y, PointF position) {
+    }
+
+    @Override
+    public void drawLayer(Canvas canvas, float scale, float contentInitialWidth, float contentInitialHeight) {
+    }
+
+    @Override
+    public void animateTo(float x, float y, int zoomLevel, AnimationCallback callback) {
+    }
+
+    @Override
+    public void animateTo(float x, float y, AnimationCallback callback) {
+    }
+
+    @Override
+    public void animateTo(float x, float y, int zoomLevel) {
+    }
+
+    @Override
+    public void animateTo(float x, float y) {
+    }
+}
@@ -0,0 +1,324 @@
+package com.joanzapata.tilesview.benchmark;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+
+import com.joanzapata.tilesview.FrameInfo;
+import com.joanzapata.tilesview.OnFrameDrawnListener;
+import com.joanzapata.tilesview.OnViewLoadedCallback;
+import com.joanzapata.tilesview.RenderStats;
+import com.joanzapata.tilesview.TilesView;
+import com.joanzapata.tilesview.TilesViewAdapter;
+import com.joanzapata.tilesview.Tracer;
+import com.joanzapata.tilesview.tracer.InMemoryTracer;
+import com.joanzapata.tilesview.util.ScrollAndZoomDetector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.joanzapata.tilesview.benchmark.GestureTrace.*;
+
+/**
+ * Replays gesture traces on a TilesView in real time, on the main looper of the
+ * JVM stand-ins, and measures how long the view takes to load after each gesture,
+ * from the moment it stops moving (at the end of the fling or zoom animation).
+ * <br>
+ * Run with ./gradlew :tilesview-benchmark:replay -Preplay="scroll.trace fling.trace"
+ * to replay some of the traces in src/main/resources/traces, all of them by default,
+ * or traces recorded with TilesView.setGestureRecordingEnabled() given by their path.
+ */
+public class GestureReplay {
+
+    public static final int SCREEN_WIDTH = 1080;
+    public static final int SCREEN_HEIGHT = 1920;
+
+    /** Stages kept to explain the slowest frame */
+    private static final int TRACER_CAPACITY = 200000;
+
+    private static final String[] STAGE_NAMES = {"getTile", "enqueue", "queueWait", "drawTile", "publish", "onDraw"};
+
+    /** Time given to the view to load after the last gesture */
+    private static final long LOAD_TIMEOUT = 5000;
+
+    private static final String[] DEFAULT_TRACES = {
+            "scroll.trace", "fling.trace", "pinch.trace", "double_tap.trace"};
+
+    public static void main(String[] args) throws Exception {
+        String[] traceNames = args.length > 0 ? args : DEFAULT_TRACES;
+        TilesViewAdapter[] adapters = {
+                new SyntheticAdapter(SyntheticAdapter.COST_CPU, 1),
+                new SyntheticAdapter(SyntheticAdapter.COST_CPU, 8),
+                new SyntheticAdapter(SyntheticAdapter.COST_IO, 30)};
+
+        for (String traceName : traceNames) {
+            File traceFile = new File(traceName);
+            GestureTrace trace = traceFile.isFile() ?
+                    GestureTrace.fromFile(traceFile) :
+                    GestureTrace.fromResource("traces/" + traceName);
+            for (TilesViewAdapter adapter : adapters) {
+                System.out.println(replay(trace, adapter));
+            }
+        }
+        System.exit(0);
+    }
+
+    private final Looper looper;
+
+    private final TilesView tilesView;
+
+    private final ScrollAndZoomDetector detector;
+
+    private final Result result;
+
+    private final InMemoryTracer tracer;
+
+    /** Watches the load of the current gesture, once the view stopped moving */
+    private LoadWatcher watcher;
+
+    private boolean waitingMotionEnd;
+
+    private GestureReplay(GestureTrace trace, TilesViewAdapter adapter) {
+        Context context = new Context();
+        looper = Looper.getMainLooper();
+        result = new Result(trace, adapter);
+        tilesView = new TilesView(context);
+        tracer = new InMemoryTracer(TRACER_CAPACITY);
+        detector = new ScrollAndZoomDetector(context, tilesView, tilesView);
+    }
+
+    /**
+     * Replays the trace on a new TilesView using the given adapter,
+     * must always be called from the same thread.
+     */
+    public static Result replay(GestureTrace trace, TilesViewAdapter adapter) throws InterruptedException {
+        return new GestureReplay(trace, adapter).replay();
+    }
+
+    private Result replay() throws InterruptedException {
+        tilesView.layout(SCREEN_WIDTH, SCREEN_HEIGHT);
+        tilesView.setRenderStatsEnabled(true);
+        tilesView.setTracer(tracer);
+        tilesView.setOnFrameDrawnListener(new OnFrameDrawnListener() {
+            @Override
+            public void onFrameDrawn(FrameInfo frameInfo) {
+                result.frames++;
+                if (!frameInfo.isFullyLoaded()) result.incompleteFrames++;
+                result.peakMemoryBytes = Math.max(result.peakMemoryBytes, tilesView.getMemoryUsage().getTotalBytes());
+            }
+        });
+
+        // Bitmaps of the previous replays may not be garbage collected yet
+        long initialBitmapBytes = Bitmap.getAllocatedBytes();
+        Bitmap.resetPeakAllocatedBytes();
+
+        tilesView.setAdapter(result.adapter);
+        watcher = new LoadWatcher(tilesView);
+        waitLoaded();
+        result.initialLoadTime = watcher.loadTime;
+        watcher = null;
+
+        List<GestureTrace.Event> events = result.trace.getEvents();
+        long startTime = SystemClock.uptimeMillis();
+        for (int i = 0, size = events.size(); i < size; i++) {
+            GestureTrace.Event event = events.get(i);
+            loopUntil(startTime + event.time);
+
+            // A new gesture starts, the previous one may not be loaded yet
+            if (event.type == EVENT_DOWN && (watcher != null || waitingMotionEnd)) {
+                result.gestureLoadTimes.add(watcher != null ? watcher.loadTime : -1);
+                watcher = null;
+                waitingMotionEnd = false;
+            }
+
+            dispatch(event, tilesView, detector);
+
+            if (i == size - 1 || events.get(i + 1).type == EVENT_DOWN) {
+                waitingMotionEnd = true;
+                watchLoadIfStill();
+            }
+        }
+        waitLoaded();
+        result.gestureLoadTimes.add(watcher != null ? watcher.loadTime : -1);
+
+        result.stats = tilesView.getRenderStats();
+        result.peakBitmapBytes = Bitmap.getPeakAllocatedBytes() - initialBitmapBytes;
+        result.slowestFrame = describeSlowestFrame();
+
+        tilesView.clear();
+        Choreographer.getInstance().clear();
+        looper.clear();
+        return result;
+    }
+
+    /**
+     * @return The duration of the slowest frame, and the longest
+     * stage it waited for on the UI thread, if any.
+     */
+    private String describeSlowestFrame() {
+        InMemoryTracer.Stage slowestFrame = null;
+        for (InMemoryTracer.Stage frame : tracer.getStages(Tracer.STAGE_ON_DRAW)) {
+            if (slowestFrame == null || frame.getDurationNanos() > slowestFrame.getDurationNanos()) {
+                slowestFrame = frame;
+            }
+        }
+        if (slowestFrame == null) return "none";
+
+        InMemoryTracer.Stage longestStage = null;
+        for (InMemoryTracer.Stage stage : tracer.getStagesDuring(slowestFrame)) {
+            if (slowestFrame.threadName.equals(stage.threadName) && stage.stage != Tracer.STAGE_GET_TILE
+                    && (longestStage == null || stage.getDurationNanos() > longestStage.getDurationNanos())) {
+                longestStage = stage;
+            }
+        }
+        String description = String.format("%.1fms", slowestFrame.getDurationNanos() / 1e6f);
+        if (longestStage != null) {
+            description += String.format(" (%s %d/%d/%d %.1fms)", STAGE_NAMES[longestStage.stage],
+                    longestStage.zoomLevel, longestStage.xIndex, longestStage.yIndex,
+                    longestStage.getDurationNanos() / 1e6f);
+        }
+        return description;
+    }
+
+    private void loopUntil(long uptimeMillis) throws InterruptedException {
+        while (looper.loopOnce(uptimeMillis)) {
+            watchLoadIfStill();
+        }
+    }
+
+    private void waitLoaded() throws InterruptedException {
+        long deadline = SystemClock.uptimeMillis() + LOAD_TIMEOUT;
+        while ((watcher == null || watcher.loadTime == -1) && looper.loopOnce(deadline)) {
+            watchLoadIfStill();
+        }
+    }
+
+    /** Starts watching the load once the animations of the gesture are over */
+    private void watchLoadIfStill() {
+        if (waitingMotionEnd && !Choreographer.getInstance().hasAnimationCallbacks()) {
+            waitingMotionEnd = false;
+            watcher = new LoadWatcher(tilesView);
+        }
+    }
+
+    private static void dispatch(GestureTrace.Event event, TilesView tilesView, ScrollAndZoomDetector detector) {
+        long now = SystemClock.uptimeMillis();
+        switch (event.type) {
+            case EVENT_DOWN:
+                // Through the detector, which stops the current fling
+                detector.onDown(MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, 0, 0, 0));
+                break;
+            case EVENT_SCROLL:
+                tilesView.onScroll(event.arg0, event.arg1);
+                break;
+            case EVENT_SCALE:
+                tilesView.onScale(event.arg0, event.arg1, event.arg2);
+                break;
+            case EVENT_SCALE_END:
+                tilesView.onScaleEnd(event.arg0, event.arg1, event.arg2);
+                break;
+            case EVENT_DOUBLE_TAP:
+                tilesView.onDoubleTap(event.arg0, event.arg1);
+                break;
+            case EVENT_FLING:
+                // Through the detector, which animates the fling
+                float x = SCREEN_WIDTH / 2f, y = SCREEN_HEIGHT / 2f;
+                detector.onFling(
+                        MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, x, y, 0),
+                        MotionEvent.obtain(now, now, MotionEvent.ACTION_UP, x, y, 0),
+                        event.arg0, event.arg1);
+                break;
+        }
+    }
+
+    private static class LoadWatcher implements OnViewLoadedCallback {
+
+        private final long startTime;
+
+        /** Time between the creation of the watcher and the view load, -1 until loaded */
+        long loadTime = -1;
+
+        LoadWatcher(TilesView tilesView) {
+            startTime = SystemClock.uptimeMillis();
+            tilesView.setOnViewLoadedCallback(this);
+        }
+
+        @Override
+        public void onViewLoaded() {
+            loadTime = SystemClock.uptimeMillis() - startTime;
+        }
+    }
+
+    public static class Result {
+
+        private final GestureTrace trace;
+
+        private final TilesViewAdapter adapter;
+
+        long initialLoadTime;
+
+        /** Time to load after each gesture stopped moving, -1 if the next gesture started before */
+        final List<Long> gestureLoadTimes = new ArrayList<Long>();
+
+        RenderStats stats;
+
+        long peakBitmapBytes;
+
+        /** Highest TilesView.getMemoryUsage() seen when drawing */
+        long peakMemoryBytes;
+
+        int frames, incompleteFrames;
+
+        String slowestFrame;
+
+        Result(GestureTrace trace, TilesViewAdapter adapter) {
+            this.trace = trace;
+            this.adapter = adapter;
+        }
+
+        public long getInitialLoadTime() {
+            return initialLoadTime;
+        }
+
+        public List<Long> getGestureLoadTimes() {
+            return gestureLoadTimes;
+        }
+
+        public RenderStats getStats() {
+            return stats;
+        }
+
+        public long getPeakBitmapBytes() {
+            return peakBitmapBytes;
+        }
+
+        public long getPeakMemoryBytes() {
+            return peakMemoryBytes;
+        }
+
+        public int getFrames() {
+            return frames;
+        }
+
+        public int getIncompleteFrames() {
+            return incompleteFrames;
+        }
+
+        @Override
+        public String toString() {
+            long[] loadTimes = new long[gestureLoadTimes.size()];
+            for (int i = 0; i < loadTimes.length; i++) loadTimes[i] = gestureLoadTimes.get(i);
+            return String.format("%-18s %-10s initial load %4dms, gesture loads (ms) %s, " +
+                            "rendered %d, wasted %d, cancelled %d, peak bitmaps %.1fMB, peak memory usage %.1fMB, " +
+                            "incomplete frames %d/%d, slowest frame %s",
+                    trace.getName(), adapter, initialLoadTime, Arrays.toString(loadTimes),
+                    stats.getRenderedTiles(), stats.getWastedRenders(), stats.getCancelledTiles(),
+                    peakBitmapBytes / 1024f / 1024f, peakMemoryBytes / 1024f / 1024f, incompleteFrames, frames, slowestFrame);
+        }
+    }
+}
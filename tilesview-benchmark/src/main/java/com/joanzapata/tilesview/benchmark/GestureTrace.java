@@ -0,0 +1,180 @@
+package com.joanzapata.tilesview.benchmark;
+
+import com.joanzapata.tilesview.internal.GestureRecorder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Timestamped ScrollAndZoomListener events. In the text format, each line is
+ * {@code <time in ms> <event> <arguments>}, with the events:
+ * <pre>
+ * down
+ * scroll      distanceX distanceY
+ * scale       scaleFactor focusX focusY
+ * scale_end   focusX focusY lastScaleFactor
+ * double_tap  focusX focusY
+ * fling       velocityX velocityY
+ * </pre>
+ * Empty lines and lines starting with # are ignored. A gesture starts at each down event.
+ * <br>
+ * Traces recorded by TilesView.setGestureRecordingEnabled() are in the binary format
+ * of {@link GestureRecorder}, both formats are read by {@link #read(String, InputStream)}.
+ */
+public class GestureTrace {
+
+    public static final int EVENT_DOWN = GestureRecorder.EVENT_DOWN;
+    public static final int EVENT_SCROLL = GestureRecorder.EVENT_SCROLL;
+    public static final int EVENT_SCALE = GestureRecorder.EVENT_SCALE;
+    public static final int EVENT_SCALE_END = GestureRecorder.EVENT_SCALE_END;
+    public static final int EVENT_DOUBLE_TAP = GestureRecorder.EVENT_DOUBLE_TAP;
+    public static final int EVENT_FLING = GestureRecorder.EVENT_FLING;
+
+    /** Indexed by event type */
+    private static final String[] EVENT_NAMES = {"down", "scroll", "scale", "scale_end", "double_tap", "fling"};
+
+    private final String name;
+
+    private final List<Event> events;
+
+    public GestureTrace(String name, List<Event> events) {
+        this.name = name;
+        this.events = Collections.unmodifiableList(new ArrayList<Event>(events));
+    }
+
+    /**
+     * Reads a trace from the classpath, for example "traces/scroll.trace".
+     */
+    public static GestureTrace fromResource(String path) throws IOException {
+        InputStream inputStream = GestureTrace.class.getClassLoader().getResourceAsStream(path);
+        if (inputStream == null) throw new IOException("Trace not found: " + path);
+        try {
+            return read(path.substring(path.lastIndexOf('/') + 1), inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    public static GestureTrace fromFile(File file) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            return read(file.getName(), inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Reads a trace in the text or the binary format, without closing the stream.
+     */
+    public static GestureTrace read(String name, InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        in.mark(4);
+        boolean binary = in.readInt() == GestureRecorder.MAGIC;
+        in.reset();
+        return binary ? readBinary(name, in) : parse(name, new BufferedReader(new InputStreamReader(in, "UTF-8")));
+    }
+
+    private static GestureTrace readBinary(String name, DataInputStream in) throws IOException {
+        in.readInt();
+        int version = in.readByte();
+        if (version != GestureRecorder.VERSION) {
+            throw new IOException(name + ": unsupported trace version " + version);
+        }
+        int nbEvents = in.readInt();
+        List<Event> events = new ArrayList<Event>(nbEvents);
+        for (int i = 0; i < nbEvents; i++) {
+            int type = in.readByte();
+            if (type < 0 || type >= EVENT_NAMES.length) {
+                throw new IOException(name + ": invalid event type " + type);
+            }
+            long time = in.readInt();
+            float[] args = new float[3];
+            for (int arg = 0; arg < GestureRecorder.getNbArgs(type); arg++) {
+                args[arg] = in.readFloat();
+            }
+            events.add(new Event(time, type, args[0], args[1], args[2]));
+        }
+        return new GestureTrace(name, events);
+    }
+
+    public static GestureTrace parse(String name, BufferedReader reader) throws IOException {
+        List<Event> events = new ArrayList<Event>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] tokens = line.split("\\s+");
+            int type = tokens.length > 1 ? eventType(tokens[1]) : -1;
+            if (type == -1 || tokens.length != GestureRecorder.getNbArgs(type) + 2) {
+                throw new IOException(name + ":" + lineNumber + ": invalid event \"" + line + "\"");
+            }
+            float[] args = new float[3];
+            for (int i = 0; i < GestureRecorder.getNbArgs(type); i++) {
+                args[i] = Float.parseFloat(tokens[i + 2]);
+            }
+            events.add(new Event(Long.parseLong(tokens[0]), type, args[0], args[1], args[2]));
+        }
+        return new GestureTrace(name, events);
+    }
+
+    private static int eventType(String eventName) {
+        for (int i = 0; i < EVENT_NAMES.length; i++) {
+            if (EVENT_NAMES[i].equals(eventName.toLowerCase(Locale.US))) return i;
+        }
+        return -1;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public int getNbGestures() {
+        int nbGestures = 0;
+        for (int i = 0; i < events.size(); i++) {
+            if (i == 0 || events.get(i).type == EVENT_DOWN) nbGestures++;
+        }
+        return nbGestures;
+    }
+
+    public static class Event {
+
+        /** Time since the beginning of the trace, in ms */
+        public final long time;
+
+        public final int type;
+
+        /** Arguments of the event, in the order of the text format, unused ones are 0 */
+        public final float arg0, arg1, arg2;
+
+        public Event(long time, int type, float arg0, float arg1, float arg2) {
+            this.time = time;
+            this.type = type;
+            this.arg0 = arg0;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+        }
+
+        @Override
+        public String toString() {
+            return time + " " + EVENT_NAMES[type] + " " + arg0 + " " + arg1 + " " + arg2;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.joanzapata.tilesview.benchmark;
+
+import com.joanzapata.tilesview.internal.LIFOExecutor;
+import com.joanzapata.tilesview.internal.RenderExecutor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link LIFOExecutor#submit(Runnable, int, float)} while its
+ * threads take tasks from the queue. Like the view, a single thread submits the tasks.
+ * Tasks are submitted faster than they run, so the queue stays full and most submissions
+ * also drop and cancel the oldest task. With a capacity of 1 every submission cancels
+ * the previous task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LIFOExecutorBenchmark {
+
+    @Param({"1", "4"})
+    public int nbThreads;
+
+    @Param({"1", "45"})
+    public int capacity;
+
+    private LIFOExecutor executor;
+
+    @Setup
+    public void setUp() {
+        executor = new LIFOExecutor(nbThreads);
+        executor.setCapacity(capacity);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void submit() {
+        executor.submit(new Task(), RenderExecutor.PRIORITY_NORMAL, 0f);
+    }
+
+    private static class Task implements Runnable, LIFOExecutor.Cancellable {
+
+        private volatile boolean cancelled;
+
+        @Override
+        public void run() {
+            if (cancelled) return;
+            Thread.yield();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
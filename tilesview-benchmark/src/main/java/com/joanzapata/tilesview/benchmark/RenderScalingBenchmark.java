@@ -0,0 +1,173 @@
+package com.joanzapata.tilesview.benchmark;
+
+import com.joanzapata.tilesview.RenderStats;
+import com.joanzapata.tilesview.internal.Tile;
+import com.joanzapata.tilesview.internal.TilePool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.joanzapata.tilesview.TilesView.TILE_SIZE;
+
+/**
+ * Measures how the rendering throughput scales with the number of rendering threads,
+ * for CPU, memory and I/O bound adapters, to find where adding threads stops helping.
+ * <br>
+ * A driver thread plays the UI thread: it requests new tiles as fast as the pool accepts
+ * them, keeping as many tiles pending as TilesView allows for a 1080x1920 screen.
+ * For each thread count, it reports the tiles rendered per second, the latency between
+ * the request and the end of the rendering, and the time the driver spends in
+ * TilePool.getTile() to submit a tile, which grows with the contention in LIFOExecutor.
+ * <br>
+ * Run with ./gradlew :tilesview-benchmark:scaling -Pscaling="cpu memory io".
+ */
+public class RenderScalingBenchmark {
+
+    private static final float CONTENT_WIDTH = 1080;
+    private static final float CONTENT_HEIGHT = 1920;
+    private static final int ZOOM_LEVEL = 10 + 256;
+
+    /** As computed by TilesView.onSizeChanged() for the content size */
+    private static final int MAX_TASKS = 45;
+
+    /** Rendering time of a tile on an idle core, in ms */
+    private static final float TILE_COST = 4;
+
+    private static final long WARMUP_DURATION = 1000;
+    private static final long MEASURE_DURATION = 3000;
+
+    public static void main(String[] args) throws InterruptedException {
+        List<String> costNames = Arrays.asList(args.length > 0 ? args : new String[]{"cpu", "memory", "io"});
+        int nbCores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Cores: " + nbCores + ", tile cost on an idle core: " + TILE_COST + "ms");
+
+        for (String costName : costNames) {
+            int costType = costName.equals("cpu") ? SyntheticAdapter.COST_CPU :
+                    costName.equals("memory") ? SyntheticAdapter.COST_MEMORY : SyntheticAdapter.COST_IO;
+            SyntheticAdapter adapter = new SyntheticAdapter(costType, TILE_COST);
+            System.out.println();
+            System.out.println(adapter);
+            System.out.println("threads   tiles/s   p50 latency   p99 latency   submit p50   submit p99   queue wait p50");
+            for (int nbThreads : getThreadCounts(nbCores)) {
+                System.out.println(new RenderScalingBenchmark(adapter, nbThreads).run());
+            }
+        }
+        System.exit(0);
+    }
+
+    /** 1 to 2x the number of cores, more sparsely above 4 */
+    private static List<Integer> getThreadCounts(int nbCores) {
+        List<Integer> threadCounts = new ArrayList<Integer>();
+        for (int nbThreads = 1; nbThreads <= nbCores * 2; nbThreads += nbThreads < 4 ? 1 : nbThreads / 4) {
+            threadCounts.add(nbThreads);
+        }
+        if (!threadCounts.contains(nbCores)) threadCounts.add(nbCores);
+        if (!threadCounts.contains(nbCores * 2)) threadCounts.add(nbCores * 2);
+        Collections.sort(threadCounts);
+        return threadCounts;
+    }
+
+    private final SyntheticAdapter adapter;
+
+    private final int nbThreads;
+
+    private final TilePool tilePool;
+
+    /** Request time of the tiles not rendered yet, in ns */
+    private final Map<Tile, Long> requestTimes = new ConcurrentHashMap<Tile, Long>();
+
+    private final LongRecorder latencies = new LongRecorder();
+
+    private final LongRecorder submitTimes = new LongRecorder();
+
+    private volatile boolean measuring;
+
+    private RenderScalingBenchmark(SyntheticAdapter adapter, int nbThreads) {
+        this.adapter = adapter;
+        this.nbThreads = nbThreads;
+        this.tilePool = new TilePool(new TilePool.TilePoolListener() {
+            @Override
+            public void onTileRendered(Tile tile) {
+                Long requestTime = requestTimes.remove(tile);
+                if (requestTime != null && measuring) {
+                    latencies.add(System.nanoTime() - requestTime);
+                }
+            }
+        });
+    }
+
+    private String run() throws InterruptedException {
+        tilePool.setRenderingThreads(nbThreads);
+        tilePool.setMaxTasks(MAX_TASKS);
+        tilePool.setAdapter(adapter, null);
+
+        float scale = ZOOM_LEVEL / 10f;
+        int gridColumns = (int) Math.ceil(CONTENT_WIDTH * scale / TILE_SIZE);
+        int gridRows = (int) Math.ceil(CONTENT_HEIGHT * scale / TILE_SIZE);
+
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.MILLISECONDS.toNanos(WARMUP_DURATION);
+        long end = measureStart + TimeUnit.MILLISECONDS.toNanos(MEASURE_DURATION);
+        long renderedTilesAtStart = 0;
+        int index = 0;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            if (!measuring && now >= measureStart) {
+                measuring = true;
+                renderedTilesAtStart = tilePool.getPublishedTiles();
+                tilePool.setStatsEnabled(true);
+            }
+
+            // Don't submit more tiles than the executor keeps, they would be dropped
+            if (requestTimes.size() >= MAX_TASKS) {
+                Thread.sleep(0, 100000);
+                continue;
+            }
+
+            int xIndex = index % gridColumns, yIndex = (index / gridColumns) % gridRows;
+            index++;
+            long requestTime = System.nanoTime();
+            tilePool.getTile(ZOOM_LEVEL, xIndex, yIndex, CONTENT_WIDTH, CONTENT_HEIGHT);
+            Tile tile = tilePool.peekTile(ZOOM_LEVEL, xIndex, yIndex);
+            long submitTime = System.nanoTime() - requestTime;
+            if (tile != null && tile.getBitmap() == null) {
+                requestTimes.put(tile, requestTime);
+            }
+            if (measuring) submitTimes.add(submitTime);
+        }
+        long renderedTiles = tilePool.getPublishedTiles() - renderedTilesAtStart;
+        RenderStats stats = tilePool.getStats();
+        tilePool.clear();
+
+        return String.format("%7d %9.0f %11.1fms %11.1fms %10.1fus %10.1fus %14.1fms",
+                nbThreads, renderedTiles * 1000f / MEASURE_DURATION,
+                latencies.getPercentile(50) / 1e6f, latencies.getPercentile(99) / 1e6f,
+                submitTimes.getPercentile(50) / 1e3f, submitTimes.getPercentile(99) / 1e3f,
+                stats.getQueueWaitMillis(50));
+    }
+
+    /** Collects values from several threads to compute percentiles */
+    private static class LongRecorder {
+
+        private long[] values = new long[1024];
+
+        private int size;
+
+        synchronized void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        synchronized long getPercentile(float percentile) {
+            if (size == 0) return 0;
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted[Math.min(size - 1, (int) (size * percentile / 100))];
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.joanzapata.tilesview.benchmark;
+
+import android.graphics.Canvas;
+
+import com.joanzapata.tilesview.adapter.DefaultAdapter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread safe adapter whose tiles take a configurable time to render on an idle core.
+ * CPU and memory bound tiles do a fixed amount of work, calibrated once, so that
+ * they take longer when threads compete for the cores or the memory bandwidth.
+ */
+public class SyntheticAdapter extends DefaultAdapter {
+
+    /** Tiles compute, like drawing vectors */
+    public static final int COST_CPU = 0;
+
+    /** Tiles sleep, like waiting for the disk or the network */
+    public static final int COST_IO = 1;
+
+    /** Tiles read random parts of a buffer much larger than the CPU caches, like sampling a big image */
+    public static final int COST_MEMORY = 2;
+
+    private static final String[] COST_NAMES = {"cpu", "io", "memory"};
+
+    /** Work done between checks of the cancellation */
+    private static final int CHUNK_ITERATIONS = 4096;
+
+    /** 64MB, shared by all the memory bound adapters */
+    private static final int MEMORY_BUFFER_SIZE = 16 * 1024 * 1024;
+
+    private static int[] memoryBuffer;
+
+    /** Iterations of the CPU and memory loops done in a millisecond, on an idle core */
+    private static float cpuIterationsPerMillis, memoryIterationsPerMillis;
+
+    /** Prevents the JIT from removing the work */
+    private static volatile int sink;
+
+    private final int costType;
+
+    private final float costMillis;
+
+    /** For CPU and memory bound tiles */
+    private final long iterations;
+
+    public SyntheticAdapter(int costType, float costMillis) {
+        this.costType = costType;
+        this.costMillis = costMillis;
+        this.iterations = (long) (costMillis * getIterationsPerMillis(costType));
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public void drawTile(Canvas canvas, float xRatio, float yRatio, float widthRatio, float heightRatio,
+                         float contentInitialWidth, float contentInitialHeight, float scale) {
+        canvas.drawColor(Float.floatToIntBits(xRatio + yRatio));
+        if (costType == COST_IO) {
+            try {
+                TimeUnit.MICROSECONDS.sleep((long) (costMillis * 1000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            int seed = Float.floatToIntBits(xRatio) ^ Float.floatToIntBits(yRatio);
+            for (long done = 0; done < iterations && !isCancelled(); done += CHUNK_ITERATIONS) {
+                seed = work(costType, seed, CHUNK_ITERATIONS);
+            }
+            sink = seed;
+        }
+    }
+
+    private static int work(int costType, int seed, int iterations) {
+        if (costType == COST_CPU) {
+            for (int i = 0; i < iterations; i++) {
+                seed = seed * 1664525 + 1013904223;
+                seed ^= seed >>> 13;
+            }
+        } else {
+            int[] buffer = memoryBuffer;
+            for (int i = 0; i < iterations; i++) {
+                seed = seed * 1664525 + 1013904223;
+                seed += buffer[(seed >>> 8) & (MEMORY_BUFFER_SIZE - 1)];
+            }
+        }
+        return seed;
+    }
+
+    private static synchronized float getIterationsPerMillis(int costType) {
+        if (costType == COST_IO) return 0;
+        if (costType == COST_MEMORY && memoryBuffer == null) {
+            memoryBuffer = new int[MEMORY_BUFFER_SIZE];
+            for (int i = 0; i < MEMORY_BUFFER_SIZE; i++) memoryBuffer[i] = i * 31;
+        }
+        float iterationsPerMillis = costType == COST_CPU ? cpuIterationsPerMillis : memoryIterationsPerMillis;
+        if (iterationsPerMillis == 0) {
+            // Warm up, then keep the best of several runs
+            int seed = 0;
+            for (int i = 0; i < 100; i++) seed = work(costType, seed, CHUNK_ITERATIONS);
+            long bestTime = Long.MAX_VALUE;
+            int calibrationIterations = 256 * CHUNK_ITERATIONS;
+            for (int run = 0; run < 10; run++) {
+                long start = System.nanoTime();
+                seed = work(costType, seed, calibrationIterations);
+                bestTime = Math.min(bestTime, System.nanoTime() - start);
+            }
+            sink = seed;
+            iterationsPerMillis = calibrationIterations / (bestTime / 1000000f);
+            if (costType == COST_CPU) cpuIterationsPerMillis = iterationsPerMillis;
+            else memoryIterationsPerMillis = iterationsPerMillis;
+        }
+        return iterationsPerMillis;
+    }
+
+    @Override
+    public String toString() {
+        return COST_NAMES[costType] + " " + costMillis + "ms";
+    }
+}
@@ -0,0 +1,88 @@
+package com.joanzapata.tilesview.benchmark;
+
+import com.joanzapata.tilesview.internal.Tile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the LRU list of {@link Tile}, the same way TilePool uses it:
+ * moving tiles to the front when they're drawn, and evicting the least
+ * recently used tile when a new one is created.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileLruBenchmark {
+
+    private static final int NB_ACCESSES = 4096;
+
+    /** Size of the cache, 2x the tiles on screen */
+    @Param({"90", "1000"})
+    public int nbTiles;
+
+    private Tile[] tiles;
+
+    private Tile tileMRU, tileLRU;
+
+    /** Random tiles to move to the front */
+    private int[] accesses;
+
+    private int accessIndex, nextTileIndex;
+
+    @Setup
+    public void setUp() {
+        tiles = new Tile[nbTiles];
+        for (int i = 0; i < nbTiles; i++) {
+            Tile tile = new Tile(i, 0, 10);
+            tiles[i] = tile;
+            if (tileLRU == null) {
+                tileLRU = tile;
+                tileMRU = tile;
+            } else {
+                tileMRU = tile.becomeMRUIfNeeded(tileMRU);
+            }
+        }
+
+        Random random = new Random(42);
+        accesses = new int[NB_ACCESSES];
+        for (int i = 0; i < NB_ACCESSES; i++) {
+            accesses[i] = random.nextInt(nbTiles);
+        }
+        nextTileIndex = nbTiles;
+    }
+
+    @Benchmark
+    public Tile becomeMRU() {
+        Tile tile = tiles[accesses[accessIndex++ & (NB_ACCESSES - 1)]];
+        if (tile == tileLRU && tile != tileMRU) {
+            tileLRU = tile.getNewerTile();
+        }
+        tileMRU = tile.becomeMRUIfNeeded(tileMRU);
+        return tileMRU;
+    }
+
+    @Benchmark
+    public Tile evictionChurn() {
+        Tile tile = new Tile(nextTileIndex++, 0, 10);
+        tileLRU.setDeleted(true);
+        tileLRU = tileLRU.removeAndGetNewLRU();
+        tileMRU = tile.becomeMRUIfNeeded(tileMRU);
+        return tileMRU;
+    }
+}
@@ -0,0 +1,109 @@
+package com.joanzapata.tilesview.benchmark;
+
+import android.graphics.Bitmap;
+
+import com.joanzapata.tilesview.internal.Tile;
+import com.joanzapata.tilesview.internal.TilePool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.joanzapata.tilesview.TilesView.TILE_SIZE;
+
+/**
+ * Measures {@link TilePool#getTile(int, int, int, float, float)}, called for each
+ * visible tile on each frame, when the tile is already rendered (hit) and when it
+ * has to be created, evicting the least recently used tile and submitting a task (miss).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TilePoolBenchmark {
+
+    private static final float CONTENT_WIDTH = 1080;
+    private static final float CONTENT_HEIGHT = 1920;
+
+    /** Deepest zoom level, so that the grid is much bigger than the cache */
+    private static final int ZOOM_LEVEL = 10 + 256;
+
+    /** Tiles on a 1080x1920 screen, like TilesView.onSizeChanged() would compute */
+    @Param({"45"})
+    public int maxTasks;
+
+    private TilePool tilePool;
+
+    private int screenColumns, screenRows, hitIndex;
+
+    private int gridColumns, gridRows, missIndex;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        tilePool = new TilePool(new TilePool.TilePoolListener() {
+            @Override
+            public void onTileRendered(Tile tile) {
+            }
+        });
+        tilePool.setMaxTasks(maxTasks);
+        tilePool.setAdapter(new BenchmarkAdapter(0xFF336699), null);
+
+        float scale = ZOOM_LEVEL / 10f;
+        gridColumns = (int) Math.ceil(CONTENT_WIDTH * scale / TILE_SIZE);
+        gridRows = (int) Math.ceil(CONTENT_HEIGHT * scale / TILE_SIZE);
+
+        // Render a screen of tiles for the hit path
+        screenColumns = (int) Math.ceil(CONTENT_WIDTH / TILE_SIZE);
+        screenRows = maxTasks / screenColumns;
+        boolean rendered = false;
+        while (!rendered) {
+            rendered = true;
+            for (int x = 0; x < screenColumns; x++) {
+                for (int y = 0; y < screenRows; y++) {
+                    rendered &= tilePool.getTile(ZOOM_LEVEL, x, y, CONTENT_WIDTH, CONTENT_HEIGHT) != null;
+                }
+            }
+            if (!rendered) Thread.sleep(1);
+        }
+
+        // Start the miss path away from the rendered screen
+        missIndex = gridColumns * (screenRows + 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        tilePool.clear();
+    }
+
+    @Benchmark
+    public Bitmap getTileHit() {
+        int index = hitIndex++ % (screenColumns * screenRows);
+        return tilePool.getTile(ZOOM_LEVEL,
+                index % screenColumns, index / screenColumns,
+                CONTENT_WIDTH, CONTENT_HEIGHT);
+    }
+
+    @Benchmark
+    public Bitmap getTileMiss() {
+        int index = missIndex++;
+        if (missIndex == gridColumns * gridRows) {
+            missIndex = gridColumns * (screenRows + 1);
+        }
+        return tilePool.getTile(ZOOM_LEVEL,
+                index % gridColumns, index / gridColumns,
+                CONTENT_WIDTH, CONTENT_HEIGHT);
+    }
+}
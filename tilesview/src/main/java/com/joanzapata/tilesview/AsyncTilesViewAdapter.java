@@ -0,0 +1,26 @@
+package com.joanzapata.tilesview;
+
+/**
+ * A TilesViewAdapter for I/O-bound tile sources, like a file storage or a local tile service.
+ * <br>
+ * Instead of drawing each tile synchronously in {@link #drawTile(android.graphics.Canvas, float, float, float, float, float, float, float)},
+ * which would block a rendering thread for the whole I/O wait, the TilesView gives each tile to
+ * {@link #requestTile(TileRequest)} and the adapter completes it later. This way a lot of requests
+ * can be in flight without tying up the rendering threads.
+ * <br>
+ * In most cases you don't need to implement it directly,
+ * but instead subclass {@link com.joanzapata.tilesview.adapter.AsyncAdapter}.
+ */
+public interface AsyncTilesViewAdapter extends TilesViewAdapter {
+
+    /**
+     * TilesView calls this method for each created tile, on a background thread. It should return
+     * quickly, start loading the tile, and later call {@link TileRequest#complete(android.graphics.Bitmap)}.
+     * <br>
+     * When the tile is evicted or not needed anymore, the request is cancelled, see
+     * {@link TileRequest#setOnCancelListener(TileRequest.OnCancelListener)}.
+     * @param tileRequest The tile to load.
+     */
+    void requestTile(TileRequest tileRequest);
+
+}
@@ -0,0 +1,20 @@
+package com.joanzapata.tilesview;
+
+/**
+ * Tells whether the tile being rendered is still needed.
+ * <br>
+ * Long-running adapters, like multi-pass vector renders or large decodes, can
+ * check it between steps of {@link TilesViewAdapter#drawTile(android.graphics.Canvas, float, float, float, float, float, float, float)}
+ * and return early when it's cancelled, handing their thread over to visible tiles.
+ * The content of a cancelled tile is discarded anyway.
+ * @see TilesView#getCancellationToken()
+ */
+public interface CancellationToken {
+
+    /**
+     * @return True if the tile is not needed anymore, for example because it has
+     * been evicted from the cache or the user has scrolled far away.
+     */
+    boolean isCancelled();
+
+}
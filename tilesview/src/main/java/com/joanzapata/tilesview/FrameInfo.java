@@ -0,0 +1,60 @@
+package com.joanzapata.tilesview;
+
+/**
+ * Metrics of a single frame drawn by a TilesView.
+ * @see OnFrameDrawnListener
+ */
+public final class FrameInfo {
+
+    long tilesDrawTime, layerDrawTime;
+    int drawnTiles, drawnPlaceholders, backgroundFills, requestedTiles;
+    boolean fullyLoaded;
+
+    FrameInfo() {
+    }
+
+    void reset() {
+        tilesDrawTime = 0;
+        layerDrawTime = 0;
+        drawnTiles = 0;
+        drawnPlaceholders = 0;
+        backgroundFills = 0;
+        requestedTiles = 0;
+        fullyLoaded = false;
+    }
+
+    /** Time spent drawing the tiles, in nanoseconds */
+    public long getTilesDrawTime() {
+        return tilesDrawTime;
+    }
+
+    /** Time spent in {@link TilesViewAdapter#drawLayer(android.graphics.Canvas, float, float, float)}, in nanoseconds */
+    public long getLayerDrawTime() {
+        return layerDrawTime;
+    }
+
+    /** Number of tiles drawn from the cache */
+    public int getDrawnTiles() {
+        return drawnTiles;
+    }
+
+    /** Number of tiles not rendered yet, replaced by a part of the placeholder */
+    public int getDrawnPlaceholders() {
+        return drawnPlaceholders;
+    }
+
+    /** Number of tiles filled with the background, because they're outside the content or nothing else is available */
+    public int getBackgroundFills() {
+        return backgroundFills;
+    }
+
+    /** Number of tiles sent to rendering during this frame */
+    public int getRequestedTiles() {
+        return requestedTiles;
+    }
+
+    /** True if all the visible tiles were rendered, as defined by {@link OnViewLoadedCallback} */
+    public boolean isFullyLoaded() {
+        return fullyLoaded;
+    }
+}
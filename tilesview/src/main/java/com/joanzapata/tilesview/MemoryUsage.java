@@ -0,0 +1,99 @@
+package com.joanzapata.tilesview;
+
+/**
+ * A snapshot of the memory held by a TilesView, by category and by zoom level.
+ * Bitmap sizes are exact, the sizes of the objects around them are estimates.
+ * @see TilesView#getMemoryUsage()
+ */
+public final class MemoryUsage {
+
+    private final int[] zoomLevels;
+    private final long[] tileBitmapBytes, tileGridBytes;
+    private final long placeholderBytes, queuedTaskBytes;
+
+    /**
+     * @param zoomLevels      The zoom levels which have tiles, in ascending order.
+     * @param tileBitmapBytes For each zoom level, the bytes of the tiles bitmaps.
+     * @param tileGridBytes   For each zoom level, the bytes of the tiles grid and the tiles in it.
+     */
+    public MemoryUsage(int[] zoomLevels, long[] tileBitmapBytes, long[] tileGridBytes,
+                       long placeholderBytes, long queuedTaskBytes) {
+        this.zoomLevels = zoomLevels;
+        this.tileBitmapBytes = tileBitmapBytes;
+        this.tileGridBytes = tileGridBytes;
+        this.placeholderBytes = placeholderBytes;
+        this.queuedTaskBytes = queuedTaskBytes;
+    }
+
+    /** All categories together */
+    public long getTotalBytes() {
+        return getTileBitmapBytes() + getTileGridBytes() + placeholderBytes + queuedTaskBytes;
+    }
+
+    /** Bitmaps of the rendered tiles */
+    public long getTileBitmapBytes() {
+        return sum(tileBitmapBytes);
+    }
+
+    /** Grids indexing the tiles of each zoom level, which are sized for the whole content */
+    public long getTileGridBytes() {
+        return sum(tileGridBytes);
+    }
+
+    /** Bitmap of the whole content shown while tiles are rendering */
+    public long getPlaceholderBytes() {
+        return placeholderBytes;
+    }
+
+    /** Tasks waiting to be rendered, and the bitmaps of evicted tiles they will reuse */
+    public long getQueuedTaskBytes() {
+        return queuedTaskBytes;
+    }
+
+    /** The zoom levels which have tiles, in ascending order */
+    public int[] getZoomLevels() {
+        return zoomLevels.clone();
+    }
+
+    /** Bitmaps of the rendered tiles of the given zoom level */
+    public long getTileBitmapBytes(int zoomLevel) {
+        int index = indexOf(zoomLevel);
+        return index >= 0 ? tileBitmapBytes[index] : 0;
+    }
+
+    /** Grid of the given zoom level */
+    public long getTileGridBytes(int zoomLevel) {
+        int index = indexOf(zoomLevel);
+        return index >= 0 ? tileGridBytes[index] : 0;
+    }
+
+    private int indexOf(int zoomLevel) {
+        for (int i = 0; i < zoomLevels.length; i++) {
+            if (zoomLevels[i] == zoomLevel) return i;
+        }
+        return -1;
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) sum += value;
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder byZoomLevel = new StringBuilder();
+        for (int i = 0; i < zoomLevels.length; i++) {
+            if (i > 0) byZoomLevel.append(", ");
+            byZoomLevel.append(zoomLevels[i]).append('=').append(tileBitmapBytes[i] + tileGridBytes[i]);
+        }
+        return "MemoryUsage{" +
+                "totalBytes=" + getTotalBytes() +
+                ", tileBitmapBytes=" + getTileBitmapBytes() +
+                ", tileGridBytes=" + getTileGridBytes() +
+                ", placeholderBytes=" + placeholderBytes +
+                ", queuedTaskBytes=" + queuedTaskBytes +
+                ", byZoomLevel={" + byZoomLevel + "}" +
+                '}';
+    }
+}
@@ -0,0 +1,15 @@
+package com.joanzapata.tilesview;
+
+/**
+ * Notified after each frame drawn by a TilesView, on the UI thread.
+ * Useful to track jank, it doesn't allocate anything so it can stay enabled in release builds.
+ * @see TilesView#setOnFrameDrawnListener(OnFrameDrawnListener)
+ */
+public interface OnFrameDrawnListener {
+
+    /**
+     * @param frameInfo The metrics of the frame. The same instance is reused for
+     *                  each frame, copy the values if you need to keep them.
+     */
+    void onFrameDrawn(FrameInfo frameInfo);
+}
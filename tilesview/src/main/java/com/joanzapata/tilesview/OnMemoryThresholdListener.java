@@ -0,0 +1,14 @@
+package com.joanzapata.tilesview;
+
+/**
+ * Notified on the UI thread when the memory held by a TilesView goes above a threshold.
+ * @see TilesView#setOnMemoryThresholdListener(long, OnMemoryThresholdListener)
+ */
+public interface OnMemoryThresholdListener {
+
+    /**
+     * Called once each time the usage goes above the threshold,
+     * it must go back below it before being called again.
+     */
+    void onMemoryThresholdExceeded(MemoryUsage memoryUsage);
+}
@@ -0,0 +1,134 @@
+package com.joanzapata.tilesview;
+
+/**
+ * A snapshot of the rendering statistics of a TilesView, since they were enabled.
+ * @see TilesView#setRenderStatsEnabled(boolean)
+ */
+public final class RenderStats {
+
+    /**
+     * Latencies are counted in buckets of powers of 2 microseconds: bucket 0
+     * is under 1us, bucket i is from 2^(i-1) included to 2^i excluded, the
+     * last bucket also contains everything above.
+     */
+    public static final int NB_HISTOGRAM_BUCKETS = 24;
+
+    private final long tileRequests, tileHits;
+    private final long renderedTiles, evictedTiles, cancelledTiles, wastedRenders;
+    private final long[] queueWaitHistogram, renderTimeHistogram;
+
+    public RenderStats(long tileRequests, long tileHits,
+                       long renderedTiles, long evictedTiles, long cancelledTiles, long wastedRenders,
+                       long[] queueWaitHistogram, long[] renderTimeHistogram) {
+        this.tileRequests = tileRequests;
+        this.tileHits = tileHits;
+        this.renderedTiles = renderedTiles;
+        this.evictedTiles = evictedTiles;
+        this.cancelledTiles = cancelledTiles;
+        this.wastedRenders = wastedRenders;
+        this.queueWaitHistogram = queueWaitHistogram;
+        this.renderTimeHistogram = renderTimeHistogram;
+    }
+
+    /** Number of tiles requested by the draws */
+    public long getTileRequests() {
+        return tileRequests;
+    }
+
+    /** Number of tiles requested by the draws which were already rendered */
+    public long getTileHits() {
+        return tileHits;
+    }
+
+    /** @return tileHits / tileRequests, or 0 if nothing was requested. */
+    public float getHitRatio() {
+        return tileRequests == 0 ? 0f : tileHits / (float) tileRequests;
+    }
+
+    /** Number of tiles rendered and kept in the cache */
+    public long getRenderedTiles() {
+        return renderedTiles;
+    }
+
+    /** Number of tiles removed from the cache to make room for new ones */
+    public long getEvictedTiles() {
+        return evictedTiles;
+    }
+
+    /** Number of tiles cancelled before being rendered, dropped from the queue or not needed anymore */
+    public long getCancelledTiles() {
+        return cancelledTiles;
+    }
+
+    /** Number of tiles rendered, but not needed anymore when done */
+    public long getWastedRenders() {
+        return wastedRenders;
+    }
+
+    /**
+     * @return A copy of the histogram of the time tiles waited in the queue before rendering.
+     * @see #NB_HISTOGRAM_BUCKETS
+     */
+    public long[] getQueueWaitHistogram() {
+        return queueWaitHistogram.clone();
+    }
+
+    /**
+     * @return A copy of the histogram of the rendering time of the tiles. For asynchronous
+     * adapters, it's the time between the request and its completion.
+     * @see #NB_HISTOGRAM_BUCKETS
+     */
+    public long[] getRenderTimeHistogram() {
+        return renderTimeHistogram.clone();
+    }
+
+    /**
+     * @param percentile Between 0 and 100, for example 99 for the 99th percentile.
+     * @return The time in milliseconds under which this percentage of tiles waited in the queue,
+     * rounded up to the bucket bound, or 0 if there's no data.
+     */
+    public float getQueueWaitMillis(float percentile) {
+        return getPercentileMillis(queueWaitHistogram, percentile);
+    }
+
+    /**
+     * @param percentile Between 0 and 100, for example 99 for the 99th percentile.
+     * @return The time in milliseconds under which this percentage of tiles rendered,
+     * rounded up to the bucket bound, or 0 if there's no data.
+     */
+    public float getRenderTimeMillis(float percentile) {
+        return getPercentileMillis(renderTimeHistogram, percentile);
+    }
+
+    private static float getPercentileMillis(long[] histogram, float percentile) {
+        long total = 0;
+        for (long count : histogram) total += count;
+        if (total == 0) return 0f;
+
+        long threshold = (long) Math.ceil(total * percentile / 100f);
+        long cumulated = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            cumulated += histogram[i];
+            if (cumulated >= threshold) {
+                return (1L << i) / 1000f;
+            }
+        }
+        return (1L << (histogram.length - 1)) / 1000f;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderStats{" +
+                "tileRequests=" + tileRequests +
+                ", hitRatio=" + getHitRatio() +
+                ", renderedTiles=" + renderedTiles +
+                ", evictedTiles=" + evictedTiles +
+                ", cancelledTiles=" + cancelledTiles +
+                ", wastedRenders=" + wastedRenders +
+                ", queueWaitP50=" + getQueueWaitMillis(50) + "ms" +
+                ", queueWaitP99=" + getQueueWaitMillis(99) + "ms" +
+                ", renderTimeP50=" + getRenderTimeMillis(50) + "ms" +
+                ", renderTimeP99=" + getRenderTimeMillis(99) + "ms" +
+                '}';
+    }
+}
@@ -0,0 +1,26 @@
+package com.joanzapata.tilesview;
+
+/**
+ * Can be implemented by a {@link TilesViewAdapter} whose tiles vary a lot in rendering cost,
+ * for example a map where sea tiles are trivial and city tiles are dense.
+ * <br>
+ * Among the tiles waiting to be rendered, the cheapest ones are rendered first so that
+ * the screen fills up quickly, and the expensive ones then run in parallel on all the
+ * rendering threads. Tiles of similar cost, within a factor of 2, keep the default
+ * order, most recent first.
+ */
+public interface TileCostEstimator {
+
+    /**
+     * Called on the UI thread each time a tile is requested, so it must be very cheap,
+     * like a lookup in a precomputed index. The parameters are the same as in
+     * {@link TilesViewAdapter#drawTile(android.graphics.Canvas, float, float, float, float, float, float, float)}.
+     * @return The estimated cost of the tile, in any unit as long as it's proportional to the
+     * rendering time, like a number of features. Costs of 1 or less are considered the same, use 0 if unknown.
+     */
+    float estimateTileCost(float xRatio, float yRatio,
+                           float widthRatio, float heightRatio,
+                           float contentInitialWidth, float contentInitialHeight,
+                           float scale);
+
+}
@@ -0,0 +1,59 @@
+package com.joanzapata.tilesview;
+
+import android.graphics.Bitmap;
+
+/**
+ * A request for the content of a tile, given to an {@link AsyncTilesViewAdapter}.
+ * <br>
+ * Bounds are the same as in {@link TilesViewAdapter#drawTile(android.graphics.Canvas, float, float, float, float, float, float, float)}.
+ * The request must eventually be completed using {@link #complete(Bitmap)}, from any thread,
+ * unless it gets cancelled before.
+ */
+public interface TileRequest extends CancellationToken {
+
+    /** The X position of the tile in your content, between 0 and 1, relative to contentInitialWidth. */
+    float getXRatio();
+
+    /** The Y position of the tile in your content, between 0 and 1, relative to contentInitialHeight. */
+    float getYRatio();
+
+    /** The width of the tile in your content, between 0 and 1, relative to contentInitialWidth. */
+    float getWidthRatio();
+
+    /** The height of the tile in your content, between 0 and 1, relative to contentInitialHeight. */
+    float getHeightRatio();
+
+    /** Initial available width for the content. */
+    float getContentInitialWidth();
+
+    /** Initial available height for the content. */
+    float getContentInitialHeight();
+
+    /** The scale of the tile, 1f means initial size. */
+    float getScale();
+
+    /** The width in pixels of the tile to fill. */
+    int getWidth();
+
+    /** The height in pixels of the tile to fill. */
+    int getHeight();
+
+    /**
+     * Sets a listener notified when this request gets cancelled, so that you can abort
+     * an ongoing I/O. If the request is already cancelled the listener is invoked immediately.
+     * The listener can be invoked on any thread, including the UI thread, so it must return quickly.
+     */
+    void setOnCancelListener(OnCancelListener onCancelListener);
+
+    /**
+     * Provides the content of the tile. The bitmap is scaled to the size of the tile,
+     * it can be recycled as soon as this method returns. Pass null if the tile has
+     * no content or could not be loaded, in which case it's filled with the TilesView
+     * background. Does nothing if the request has already been completed or cancelled.
+     */
+    void complete(Bitmap bitmap);
+
+    interface OnCancelListener {
+        void onCancel(TileRequest tileRequest);
+    }
+}
@@ -1,9 +1,14 @@
 package com.joanzapata.tilesview;
 
+import android.content.ComponentCallbacks;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.*;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.SystemClock;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
@@ -11,12 +16,18 @@ import android.view.View;
 import android.view.animation.AccelerateDecelerateInterpolator;
 import android.view.animation.Interpolator;
 
+import com.joanzapata.tilesview.internal.GestureRecorder;
+import com.joanzapata.tilesview.internal.RenderingContext;
 import com.joanzapata.tilesview.internal.Tile;
 import com.joanzapata.tilesview.internal.TilePool;
+import com.joanzapata.tilesview.tracer.NoOpTracer;
 import com.joanzapata.tilesview.util.AndroidCompatUtil;
 import com.joanzapata.tilesview.util.AndroidCompatUtil.ValueAnimator;
 import com.joanzapata.tilesview.util.ScrollAndZoomDetector;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZoomListener, TilePool.TilePoolListener {
 
     public static final int TILE_SIZE = 256;
@@ -28,10 +39,38 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
     private static final int ANIMATE_TO_DURATION = 600;
     private static final Interpolator DOUBLE_TAP_INTERPOLATOR = new AccelerateDecelerateInterpolator();
     private static final long SCALE_ADJUSTMENT_DURATION = 200;
+    // While zooming, tiles of a new zoom level are only requested once
+    // it stayed the same for this delay, or when the scaled tiles of the
+    // previous level would be too blurry or too numerous.
+    private static final long ZOOM_LEVEL_SETTLE_DELAY = 100;
+    private static final float MIN_ZOOM_LEVEL_DIFF = 0.5f;
+    private static final float MAX_ZOOM_LEVEL_DIFF = 2f;
     public static final int SCALE_TYPE_FLOOR = 1;
     public static final int SCALE_TYPE_CEIL = 2;
     public static final int SCALE_TYPE_ROUND = 3;
 
+    /** Debug heatmaps, see {@link #setDebugHeatmap(int)} */
+    public static final int DEBUG_HEATMAP_NONE = 0;
+    public static final int DEBUG_HEATMAP_RENDER_TIME = 1;
+    public static final int DEBUG_HEATMAP_AGE = 2;
+    public static final int DEBUG_HEATMAP_SOURCE = 3;
+    private static final int HEATMAP_ALPHA = 0x66;
+    private static final float HEATMAP_MAX_RENDER_TIME_MS = 128f;
+    private static final float HEATMAP_MAX_AGE_MS = 10000f;
+    private static final int HEATMAP_COLOR_RENDERED = 0x6600FF00;
+    private static final int HEATMAP_COLOR_INLINE = 0x6600FFFF;
+    private static final int HEATMAP_COLOR_ASYNC = 0x660000FF;
+    private static final int HEATMAP_COLOR_DOWNSAMPLED = 0x66FFFF00;
+    private static final int HEATMAP_COLOR_SCALED = 0x66FF8800;
+    private static final int HEATMAP_COLOR_PLACEHOLDER = 0x66FF00FF;
+    private static final long DEBUG_HEADER_REFRESH_DELAY = 250;
+
+    /** Minimum time between two checks of the memory threshold, in ms */
+    private static final long MEMORY_CHECK_INTERVAL = 500;
+
+    /** Events kept by the gesture recording, about 20 bytes each */
+    public static final int GESTURE_RECORDING_CAPACITY = 8192;
+
     /**
      * Prevent the user from reaching an inappropriate zoom level.
      * 5-9 = content is smaller than the screen
@@ -66,28 +105,82 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
      */
     private int zoomLevel, zoomLevelWithUserBounds;
 
+    /**
+     * Zoom level for the current scale, zoomLevel is the
+     * one rendered and follows it once settled.
+     */
+    private int targetZoomLevel;
+
+    /**
+     * Zoom level at the end of the current animation, whose tiles
+     * are prefetched, or 0 if none.
+     */
+    private int destinationZoomLevel;
+
+    private final Runnable settleZoomLevelRunnable = new Runnable() {
+        @Override
+        public void run() {
+            settleZoomLevel();
+        }
+    };
+
     /**
      * Retains all tiles in memory
      */
     private final TilePool tilePool;
 
-    private final Paint debugPaint, metricsPaint;
+    private final Paint debugPaint, metricsPaint, heatmapPaint;
     private final Paint backgroundPaint;
 
+    /** Filters the tiles drawn smaller than they were rendered */
+    private final Paint downscalePaint;
+
+    /** Zoom levels below 10 are drawn from the tiles of level 10 */
+    private boolean renderZoomedOutFromBaseLevel;
+
     private ScrollAndZoomDetector scrollAndZoomDetector;
 
     private OnViewLoadedCallback onViewLoadedCallback;
 
+    /** Forwards the memory pressure to onTrimMemory() while attached, null before API 14 */
+    private ComponentCallbacks componentCallbacks;
+
     private RectF reusableRectF = new RectF();
     private Rect reusableRect = new Rect();
     private boolean debug = false;
+    private int debugHeatmap = DEBUG_HEATMAP_NONE;
+
+    /** Rendered tiles per second, measured for the debug header */
+    private float debugThroughput;
+    private long debugThroughputUptime;
+    private int debugThroughputTiles;
     private ValueAnimator currentAnimator;
     private OnZoomLevelChangedListener onZoomLevelChangedListener;
+    private OnFrameDrawnListener onFrameDrawnListener;
 
+    /** Reused for each frame, null if there's no frame listener */
+    private FrameInfo frameInfo;
+
+    /** Null unless gestures are recorded */
+    private GestureRecorder gestureRecorder;
+
+    private Tracer tracer = NoOpTracer.INSTANCE;
+
+    private OnMemoryThresholdListener onMemoryThresholdListener;
+
+    private long memoryThreshold, lastMemoryCheckTime;
+
+    /** True if the threshold was exceeded at the last check */
+    private boolean memoryThresholdExceeded;
+
+    /** True if the last frame had all its tiles, and the view didn't move since */
     private boolean viewAlreadyLoaded = false;
 
     private TilesViewAdapter adapter;
 
+    /** Time in onDraw during which missing tiles are rendered on the UI thread, 0 if disabled */
+    private long inlineRenderingBudget;
+
     public TilesView(Context context) {
         this(context, null);
     }
@@ -110,10 +203,13 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         debugPaint.setTextAlign(Paint.Align.CENTER);
         debugPaint.setStyle(Paint.Style.STROKE);
         metricsPaint = new Paint(debugPaint);
+        heatmapPaint = new Paint();
+        heatmapPaint.setStyle(Paint.Style.FILL);
         metricsPaint.setStyle(Paint.Style.FILL);
         backgroundPaint = new Paint();
         backgroundPaint.setColor(Color.BLACK);
         backgroundPaint.setStyle(Paint.Style.FILL);
+        downscalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
         setBackgroundDrawable(getBackground());
     }
 
@@ -146,19 +242,80 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            if (componentCallbacks == null) {
+                componentCallbacks = new ComponentCallbacks2() {
+                    @Override
+                    public void onTrimMemory(int level) {
+                        TilesView.this.onTrimMemory(level);
+                    }
+
+                    @Override
+                    public void onLowMemory() {
+                        TilesView.this.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+                    }
+
+                    @Override
+                    public void onConfigurationChanged(Configuration newConfig) {
+                        // Nothing to do
+                    }
+                };
+            }
+            getContext().getApplicationContext().registerComponentCallbacks(componentCallbacks);
+        }
+    }
+
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        if (componentCallbacks != null) {
+            getContext().getApplicationContext().unregisterComponentCallbacks(componentCallbacks);
+        }
         clear();
     }
 
+    /**
+     * Releases memory depending on the pressure, called automatically on API 14+. First the tiles of
+     * other zoom levels and off screen, then the bitmaps kept to be reused, then everything but the
+     * tiles on screen, so nothing changes on screen. Tiles are rendered again as they are drawn.
+     * @param level One of the ComponentCallbacks2.TRIM_MEMORY_* levels.
+     */
+    public void onTrimMemory(int level) {
+        int tier;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            tier = TilePool.TRIM_ALL_BUT_VISIBLE;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            tier = TilePool.TRIM_POOLED_BITMAPS;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            tier = TilePool.TRIM_OFFSCREEN_TILES;
+        } else {
+            return;
+        }
+
+        // Same bounds as in onDraw()
+        float xOffsetOnContent = offsetX / scale;
+        float yOffsetOnContent = offsetY / scale;
+        float tileSizeOnContent = tilePool.getTileSize(zoomLevel) / (zoomLevel / 10f);
+        tilePool.trimMemory(tier, zoomLevel,
+                (int) Math.floor(xOffsetOnContent / tileSizeOnContent),
+                (int) Math.floor(yOffsetOnContent / tileSizeOnContent),
+                (int) ((xOffsetOnContent + getWidth() / scale) / tileSizeOnContent),
+                (int) ((yOffsetOnContent + getHeight() / scale) / tileSizeOnContent));
+    }
+
     public TilesView clear() {
         if (currentAnimator != null) currentAnimator.cancel();
         adapter = null;
-        tilePool.setAdapter(null);
+        tilePool.setAdapter(null, null);
         scale = 1f;
         zoomLevelWithUserBounds = 10;
         zoomLevel = zoomLevelForScale(scale, SCALE_TYPE_ROUND);
+        targetZoomLevel = zoomLevel;
+        destinationZoomLevel = 0;
+        removeCallbacks(settleZoomLevelRunnable);
         offsetX = -getPaddingLeft() - getContentPaddingLeft();
         offsetY = -getPaddingTop() - getContentPaddingTop();
         viewAlreadyLoaded = false;
@@ -167,12 +324,195 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         return this;
     }
 
+    /**
+     * Renders the tiles of this view on a thread pool shared by all TilesViews which
+     * enabled this option, instead of creating threads for each view. Useful when
+     * several TilesViews are displayed at the same time, or recycled in a list. Tasks
+     * of the view that was touched last are rendered first, then other visible views
+     * are served in turn. Must be called before {@link #setAdapter(TilesViewAdapter)}.
+     */
+    public TilesView setUseSharedRenderExecutor(boolean useSharedRenderExecutor) {
+        tilePool.setUseSharedExecutor(useSharedRenderExecutor);
+        return this;
+    }
+
+    /**
+     * Uses a fixed number of threads to render the tiles of thread safe adapters, or of adapters
+     * created by a factory. By default, or with 0, it's adjusted between 1 and twice the number
+     * of cores depending on how much rendering waits. Must be called before {@link #setAdapter(TilesViewAdapter)}.
+     */
+    public TilesView setRenderingThreads(int renderingThreads) {
+        tilePool.setRenderingThreads(renderingThreads);
+        return this;
+    }
+
+    /**
+     * Renders missing tiles directly in onDraw, on the UI thread, for up to the given time
+     * per frame. The tiles which don't fit in the budget are rendered in the background as
+     * usual. With simple content the screen is then complete on the first frame, instead of
+     * showing the background until the tiles come back from the rendering threads.
+     * <br>
+     * Only used for adapters which are thread safe or built by a factory, and not asynchronous.
+     * Keep the budget small, like 4ms, the UI thread has a lot to do on each frame.
+     * @param budgetMillis The time budget in milliseconds, 0 to disable. Default is 0.
+     */
+    public TilesView setInlineRenderingBudget(float budgetMillis) {
+        this.inlineRenderingBudget = (long) (budgetMillis * 1000000);
+        return this;
+    }
+
+    /**
+     * Draws the zoomed out levels, below 10, from the tiles rendered at level 10, scaled
+     * down with filtering. Tiles are rendered with mipmaps on API 17+ so that the GPU
+     * downscales them smoothly. Zooming out then doesn't render anything new, at the cost
+     * of drawing and keeping up to 4 times more tiles at the lowest zoom level. Disabled by default.
+     */
+    public TilesView setRenderZoomedOutFromBaseLevel(boolean renderZoomedOutFromBaseLevel) {
+        this.renderZoomedOutFromBaseLevel = renderZoomedOutFromBaseLevel;
+        tilePool.setMipMapTiles(renderZoomedOutFromBaseLevel);
+        updateMaxTasks();
+        targetZoomLevel = renderedZoomLevel(zoomLevelForScale(scale, SCALE_TYPE_ROUND));
+        settleZoomLevel();
+        return this;
+    }
+
+    /**
+     * Renders bigger tiles, like 512 or 1024px, for the zoom levels below the given one.
+     * Zoomed out, the screen is then covered by fewer tiles, each with little content, so
+     * there are fewer tasks, adapter calls and bitmaps to draw. Tiles already rendered are dropped.
+     * @param tileSize A multiple of {@link #TILE_SIZE}, which is used for all zoom levels by default.
+     */
+    public TilesView setLargeTiles(int belowZoomLevel, int tileSize) {
+        if (tileSize < TILE_SIZE || tileSize % TILE_SIZE != 0) {
+            throw new IllegalArgumentException("Tile size should be a multiple of " + TILE_SIZE + ".");
+        }
+        if (belowZoomLevel > 10) {
+            belowZoomLevel = 10 + (int) Math.round(Math.pow(2, (belowZoomLevel - 10)));
+        }
+        tilePool.setLargeTiles(belowZoomLevel, tileSize);
+        updateMaxTasks();
+        invalidate();
+        return this;
+    }
+
+    /**
+     * Can be called from any thread, like from an adapter.
+     * @param scale The scale given to {@link TilesViewAdapter#drawTile}.
+     * @return The size in pixels of the tiles rendered at this scale.
+     */
+    public int getTileSize(float scale) {
+        return tilePool.getTileSize(Math.round(scale * 10));
+    }
+
+    /**
+     * When zooming out, builds the new tiles by downsampling the cached tiles of the
+     * finer zoom level, on a rendering thread, instead of asking the adapter to draw them.
+     * The adapter is still used for tiles which are not entirely cached. Only enable it if
+     * the adapter draws the same content whatever the scale. Disabled by default.
+     */
+    public TilesView setDownsampleCachedTiles(boolean downsampleCachedTiles) {
+        tilePool.setDownsampleCachedTiles(downsampleCachedTiles);
+        return this;
+    }
+
+    /**
+     * Starts collecting statistics about the tiles rendering, like the hit ratio,
+     * cancelled tiles or rendering latencies, see {@link #getRenderStats()}.
+     * Disabled by default, it costs almost nothing when disabled.
+     */
+    public TilesView setRenderStatsEnabled(boolean renderStatsEnabled) {
+        tilePool.setStatsEnabled(renderStatsEnabled);
+        return this;
+    }
+
+    /**
+     * @return A snapshot of the rendering statistics since they were enabled,
+     * or null if they are not enabled.
+     * @see #setRenderStatsEnabled(boolean)
+     */
+    public RenderStats getRenderStats() {
+        return tilePool.getStats();
+    }
+
+    /**
+     * Reports the stages of the scheduling and the rendering of the tiles, and of
+     * onDraw(), to the given tracer, like {@link com.joanzapata.tilesview.tracer.AndroidTracer}
+     * for systrace. Null to stop tracing.
+     */
+    public TilesView setTracer(Tracer tracer) {
+        this.tracer = tracer != null ? tracer : NoOpTracer.INSTANCE;
+        tilePool.setTracer(tracer);
+        return this;
+    }
+
+    /**
+     * Must be called on the UI thread.
+     * @return The memory held by this view, by category and zoom level.
+     */
+    public MemoryUsage getMemoryUsage() {
+        return tilePool.getMemoryUsage();
+    }
+
+    /**
+     * Notifies the listener when the memory held by this view goes above the given number of bytes.
+     * The memory usage is checked while drawing, at most every {@value #MEMORY_CHECK_INTERVAL}ms.
+     * @see #getMemoryUsage()
+     */
+    public TilesView setOnMemoryThresholdListener(long thresholdBytes, OnMemoryThresholdListener onMemoryThresholdListener) {
+        this.memoryThreshold = thresholdBytes;
+        this.onMemoryThresholdListener = onMemoryThresholdListener;
+        this.memoryThresholdExceeded = false;
+        this.lastMemoryCheckTime = 0;
+        return this;
+    }
+
+    /**
+     * Records the gestures of the user in a ring buffer of the last {@link #GESTURE_RECORDING_CAPACITY}
+     * events, to replay them later with the benchmark module. Disabling it drops the recorded events.
+     * @see #writeGestureTrace(OutputStream)
+     */
+    public TilesView setGestureRecordingEnabled(boolean gestureRecordingEnabled) {
+        if (gestureRecordingEnabled == (gestureRecorder != null)) return this;
+        gestureRecorder = gestureRecordingEnabled ? new GestureRecorder(GESTURE_RECORDING_CAPACITY) : null;
+        scrollAndZoomDetector.setGestureRecorder(gestureRecorder);
+        return this;
+    }
+
+    /**
+     * Writes the recorded gestures, oldest first, in the binary format described in
+     * {@link GestureRecorder}. Does nothing if the gesture recording is not enabled.
+     */
+    public void writeGestureTrace(OutputStream outputStream) throws IOException {
+        if (gestureRecorder != null) gestureRecorder.writeTo(outputStream);
+    }
+
     public TilesView setDebug(boolean debug) {
         this.debug = debug;
         invalidate();
         return this;
     }
 
+    /**
+     * In debug mode, tints each tile to find where the rendering time goes, and shows a header
+     * with the number of tiles waiting to be rendered, the memory used by the tiles and the
+     * number of tiles rendered per second.
+     * @param debugHeatmap One of
+     *                     <ul>
+     *                     <li>{@link #DEBUG_HEATMAP_RENDER_TIME} from green (1ms or less) to red (128ms or more)</li>
+     *                     <li>{@link #DEBUG_HEATMAP_AGE} from red (just rendered) to blue (10s or more)</li>
+     *                     <li>{@link #DEBUG_HEATMAP_SOURCE} green for rendered tiles, cyan for tiles rendered
+     *                     on the UI thread, blue for tiles loaded asynchronously, yellow for tiles downsampled
+     *                     from a finer zoom level, orange for tiles of another zoom level scaled and magenta
+     *                     for the placeholder</li>
+     *                     <li>{@link #DEBUG_HEATMAP_NONE} to disable it</li>
+     *                     </ul>
+     */
+    public TilesView setDebugHeatmap(int debugHeatmap) {
+        this.debugHeatmap = debugHeatmap;
+        invalidate();
+        return this;
+    }
+
     public TilesView setMinZoomLevel(int minZoomLevel) {
         if (minZoomLevel > 10) {
             minZoomLevel = 10 + (int) Math.round(Math.pow(2, (minZoomLevel - 10)));
@@ -200,6 +540,15 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         return this;
     }
 
+    /**
+     * Sets a listener notified with the metrics of each frame, or null to remove it.
+     */
+    public TilesView setOnFrameDrawnListener(OnFrameDrawnListener onFrameDrawnListener) {
+        this.onFrameDrawnListener = onFrameDrawnListener;
+        this.frameInfo = onFrameDrawnListener != null ? new FrameInfo() : null;
+        return this;
+    }
+
     /**
      * Sets a callback that is invoked when this view has finished rendering. The callback will only be invoked once. If
      * this method is called when the view is fully rendered, the callback will be invoked immediately. This event will
@@ -277,23 +626,26 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         Tile[] tiles = tilePool.getTiles();
         for (int i = 0, size = tiles.length; i < size; i++) {
             Tile tile = tiles[i];
-            float scaledTileSize = TILE_SIZE / (tile.getZoomLevel() / 10f);
+            float scaledTileSize = tilePool.getTileSize(tile.getZoomLevel()) / (tile.getZoomLevel() / 10f);
             float tileL = tile.getxIndex() * scaledTileSize;
             float tileT = tile.getyIndex() * scaledTileSize;
             float tileR = tileL + scaledTileSize;
             float tileB = tileT + scaledTileSize;
             if (intersect(l, t, r, b, tileL, tileT, tileR, tileB)) {
                 tile.setDeleted(true);
-                if (scale != tile.getZoomLevel() / 10f)
+                if (zoomLevel != tile.getZoomLevel())
                     tile.setBitmap(null);
             }
         }
         tilePool.invalidatePlaceholder();
+        viewAlreadyLoaded = false;
         invalidate();
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
+        Tracer tracer = this.tracer;
+        tracer.beginStage(Tracer.STAGE_ON_DRAW, -1, -1, -1);
         boolean viewLoaded = true;
         float contentWidth = getContentWidth();
         float contentHeight = getContentHeight();
@@ -326,7 +678,7 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         float yOffsetOnContent = offsetY / scale;
         float screenWidthOnContent = getWidth() / scale;
         float screenHeightOnContent = getHeight() / scale;
-        float tileSizeOnContent = TILE_SIZE / (zoomLevel / 10f);
+        float tileSizeOnContent = tilePool.getTileSize(zoomLevel) / (zoomLevel / 10f);
         int xIndexStart = (int) (xOffsetOnContent / tileSizeOnContent);
         int yIndexStart = (int) (yOffsetOnContent / tileSizeOnContent);
         int xIndexStop = (int) ((xOffsetOnContent + screenWidthOnContent) / tileSizeOnContent);
@@ -348,6 +700,17 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
          */
         int xIndex = xIndexStart;
         int yIndex = yIndexStart;
+        FrameInfo frameInfo = this.frameInfo;
+        long tilesDrawStart = 0;
+        int requestedTilesBefore = 0;
+        if (frameInfo != null) {
+            frameInfo.reset();
+            tilesDrawStart = System.nanoTime();
+            requestedTilesBefore = tilePool.getRequestedTiles();
+        }
+        if (inlineRenderingBudget > 0) {
+            tilePool.setInlineRenderingDeadline(System.nanoTime() + inlineRenderingBudget);
+        }
         while (xIndex <= xIndexStop || yIndex <= yIndexStop) {
 
             while (xIndex <= xIndexStop && xIndex >= xIndexStart) {
@@ -411,6 +774,13 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
             if (xIndexStart > xIndexStop || yIndexStart > yIndexStop) break;
 
         }
+        tilePool.setInlineRenderingDeadline(0);
+        long layerDrawStart = 0;
+        if (frameInfo != null) {
+            layerDrawStart = System.nanoTime();
+            frameInfo.tilesDrawTime = layerDrawStart - tilesDrawStart;
+            frameInfo.requestedTiles = tilePool.getRequestedTiles() - requestedTilesBefore;
+        }
 
         // Render user layer
         if (adapter != null) {
@@ -418,6 +788,9 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
             adapter.drawLayer(canvas, scale, contentWidth, contentHeight);
             canvas.restore();
         }
+        if (frameInfo != null) {
+            frameInfo.layerDrawTime = System.nanoTime() - layerDrawStart;
+        }
 
         if (debug && adapter != null) {
 
@@ -490,13 +863,107 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
 
         canvas.restore();
 
+        if (debug && debugHeatmap != DEBUG_HEATMAP_NONE) {
+            drawDebugHeader(canvas);
+        }
+
+        viewAlreadyLoaded = viewLoaded;
         if (viewLoaded && onViewLoadedCallback != null) {
             onViewLoadedCallback.onViewLoaded();
             onViewLoadedCallback = null;
-            viewAlreadyLoaded = true;
+        }
+
+        if (frameInfo != null && onFrameDrawnListener != null) {
+            frameInfo.fullyLoaded = viewLoaded;
+            onFrameDrawnListener.onFrameDrawn(frameInfo);
+        }
+
+        if (onMemoryThresholdListener != null) {
+            checkMemoryThreshold();
+        }
+        tracer.endStage(Tracer.STAGE_ON_DRAW);
+    }
+
+    private void checkMemoryThreshold() {
+        long now = SystemClock.uptimeMillis();
+        if (now - lastMemoryCheckTime < MEMORY_CHECK_INTERVAL) return;
+        lastMemoryCheckTime = now;
+
+        MemoryUsage memoryUsage = tilePool.getMemoryUsage();
+        boolean exceeded = memoryUsage.getTotalBytes() > memoryThreshold;
+        if (exceeded && !memoryThresholdExceeded) {
+            onMemoryThresholdListener.onMemoryThresholdExceeded(memoryUsage);
+        }
+        memoryThresholdExceeded = exceeded;
+    }
+
+    private void drawHeatmap(Canvas canvas, float left, float top, float right, float bottom, int color) {
+        if (color == Color.TRANSPARENT) return;
+        heatmapPaint.setColor(color);
+        canvas.drawRect(left, top, right, bottom, heatmapPaint);
+    }
+
+    private int getHeatmapColor(Tile tile) {
+        if (tile == null) return Color.TRANSPARENT;
+        switch (debugHeatmap) {
+            case DEBUG_HEATMAP_RENDER_TIME:
+                float renderTimeMs = tile.getRenderDuration() / 1000000f;
+                float slowness = (float) (Math.log(Math.max(renderTimeMs, 1f)) / Math.log(HEATMAP_MAX_RENDER_TIME_MS));
+                return getHeatmapGradient(0xFF00FF00, 0xFFFF0000, slowness);
+            case DEBUG_HEATMAP_AGE:
+                float ageMs = SystemClock.uptimeMillis() - tile.getRenderUptime();
+                return getHeatmapGradient(0xFFFF0000, 0xFF0000FF, ageMs / HEATMAP_MAX_AGE_MS);
+            case DEBUG_HEATMAP_SOURCE:
+                if (tile.getZoomLevel() != targetZoomLevel) return HEATMAP_COLOR_SCALED;
+                switch (tile.getSource()) {
+                    case Tile.SOURCE_INLINE:
+                        return HEATMAP_COLOR_INLINE;
+                    case Tile.SOURCE_ASYNC:
+                        return HEATMAP_COLOR_ASYNC;
+                    case Tile.SOURCE_DOWNSAMPLED:
+                        return HEATMAP_COLOR_DOWNSAMPLED;
+                    default:
+                        return HEATMAP_COLOR_RENDERED;
+                }
+            default:
+                return Color.TRANSPARENT;
         }
     }
 
+    /** Interpolates two opaque colors and applies the heatmap alpha */
+    private static int getHeatmapGradient(int from, int to, float ratio) {
+        ratio = Math.min(Math.max(ratio, 0f), 1f);
+        int r = (int) (((from >> 16) & 0xFF) * (1 - ratio) + ((to >> 16) & 0xFF) * ratio);
+        int g = (int) (((from >> 8) & 0xFF) * (1 - ratio) + ((to >> 8) & 0xFF) * ratio);
+        int b = (int) ((from & 0xFF) * (1 - ratio) + (to & 0xFF) * ratio);
+        return (HEATMAP_ALPHA << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private void drawDebugHeader(Canvas canvas) {
+        long now = SystemClock.uptimeMillis();
+        if (now - debugThroughputUptime >= 1000) {
+            int publishedTiles = tilePool.getPublishedTiles();
+            if (debugThroughputUptime != 0) {
+                debugThroughput = (publishedTiles - debugThroughputTiles) * 1000f / (now - debugThroughputUptime);
+            }
+            debugThroughputUptime = now;
+            debugThroughputTiles = publishedTiles;
+        }
+
+        String header = "queue " + tilePool.getQueueSize()
+                + "  cache " + (tilePool.getCacheSizeInBytes() / 1024 / 1024) + "MB"
+                + "  " + Math.round(debugThroughput) + " tiles/s";
+        float textSize = debugPaint.getTextSize();
+        metricsPaint.setStyle(Paint.Style.FILL);
+        metricsPaint.setColor(0xAA000000);
+        canvas.drawRect(0, 0, getWidth(), textSize * 1.5f, metricsPaint);
+        metricsPaint.setColor(Color.WHITE);
+        canvas.drawText(header, getWidth() / 2f, textSize * 1.1f, metricsPaint);
+
+        // Keep the header live
+        postInvalidateDelayed(DEBUG_HEADER_REFRESH_DELAY);
+    }
+
     private boolean drawTile(
             int xIndex, int yIndex,
             Canvas canvas, Bitmap placeholder,
@@ -506,13 +973,14 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
             float contentWidth, float contentHeight) {
 
         boolean tileLoaded;
+        int tileSize = tilePool.getTileSize(zoomLevel);
 
         // Compute the current tile position on canvas
         float spread = zoomDiff != 1f ? +1f : 0f;
-        float left = xIndex * (float) TILE_SIZE * zoomDiff;
-        float top = yIndex * (float) TILE_SIZE * zoomDiff;
-        float right = left + TILE_SIZE * zoomDiff + spread;
-        float bottom = top + TILE_SIZE * zoomDiff + spread;
+        float left = xIndex * (float) tileSize * zoomDiff;
+        float top = yIndex * (float) tileSize * zoomDiff;
+        float right = left + tileSize * zoomDiff + spread;
+        float bottom = top + tileSize * zoomDiff + spread;
 
         // If this tile is not outside the user content
         if (xIndex >= xGridIndexStart && xIndex <= xGridIndexStop &&
@@ -524,12 +992,17 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
             if (tile != null && !tile.isRecycled()) {
                 // Draw the tile if any
                 reusableRectF.set(left, top, right, bottom);
-                canvas.drawBitmap(tile, null, reusableRectF, null);
+                canvas.drawBitmap(tile, null, reusableRectF, zoomDiff < 1f ? downscalePaint : null);
                 tileLoaded = true;
+                if (frameInfo != null) frameInfo.drawnTiles++;
+                if (debug && debugHeatmap != DEBUG_HEATMAP_NONE) {
+                    drawHeatmap(canvas, left, top, right, bottom,
+                            getHeatmapColor(tilePool.peekTile(zoomLevel, xIndex, yIndex)));
+                }
             } else if (placeholder != null && xIndex >= 0 && yIndex >= 0) {
                 // Draw the placeholder if any
                 reusableRectF.set(left, top, right, bottom);
-                float placeholderTileSize = TILE_SIZE / placeholderRatio / scale * zoomDiff;
+                float placeholderTileSize = tileSize / placeholderRatio / scale * zoomDiff;
                 reusableRect.set(
                         (int) (xIndex * placeholderTileSize),
                         (int) (yIndex * placeholderTileSize),
@@ -538,7 +1011,7 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
 
                 if (reusableRect.right > placeholder.getWidth()) {
                     float rightOffsetOnPlaceholderTile = reusableRect.right - placeholder.getWidth();
-                    float rightOffset = rightOffsetOnPlaceholderTile * (TILE_SIZE * zoomDiff) / placeholderTileSize;
+                    float rightOffset = rightOffsetOnPlaceholderTile * (tileSize * zoomDiff) / placeholderTileSize;
                     canvas.drawRect(
                             reusableRectF.right - rightOffset - 1, reusableRectF.top,
                             reusableRectF.right, reusableRectF.bottom,
@@ -549,7 +1022,7 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
 
                 if (reusableRect.bottom > placeholder.getHeight()) {
                     float bottomOffsetOnPlaceholderTile = reusableRect.bottom - placeholder.getHeight();
-                    float bottomOffset = bottomOffsetOnPlaceholderTile * (TILE_SIZE * zoomDiff) / placeholderTileSize;
+                    float bottomOffset = bottomOffsetOnPlaceholderTile * (tileSize * zoomDiff) / placeholderTileSize;
                     canvas.drawRect(
                             reusableRectF.left, reusableRectF.bottom - bottomOffset - 1,
                             reusableRectF.right, reusableRectF.bottom,
@@ -560,10 +1033,15 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
 
                 canvas.drawBitmap(placeholder, reusableRect, reusableRectF, null);
                 tileLoaded = false;
+                if (frameInfo != null) frameInfo.drawnPlaceholders++;
+                if (debug && debugHeatmap == DEBUG_HEATMAP_SOURCE) {
+                    drawHeatmap(canvas, left, top, right, bottom, HEATMAP_COLOR_PLACEHOLDER);
+                }
             } else {
                 // Draw the background otherwise
                 canvas.drawRect(left, top, right, bottom, backgroundPaint);
                 tileLoaded = false;
+                if (frameInfo != null) frameInfo.backgroundFills++;
             }
 
             if (debug) {
@@ -591,6 +1069,7 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
             // If the current tile is outside user content, draw placeholder
             canvas.drawRect(left, top, right, bottom, backgroundPaint);
             tileLoaded = true;
+            if (frameInfo != null) frameInfo.backgroundFills++;
 
         }
 
@@ -598,24 +1077,70 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
     }
 
     public void setAdapter(TilesViewAdapter tilesViewAdapter) {
+        setAdapter(tilesViewAdapter, null);
+    }
+
+    /**
+     * Same as {@link #setAdapter(TilesViewAdapter)} for adapters which are not thread safe.
+     * The factory is used to create one adapter used on the UI thread, and one adapter
+     * for each rendering thread, so that tiles are rendered in parallel anyway.
+     */
+    public void setAdapter(final TilesViewAdapterFactory tilesViewAdapterFactory) {
+        setAdapter(tilesViewAdapterFactory.newAdapter(), new TilesViewAdapterFactory() {
+            @Override
+            public TilesViewAdapter newAdapter() {
+                TilesViewAdapter renderingAdapter = tilesViewAdapterFactory.newAdapter();
+                renderingAdapter.attachTilesView(TilesView.this);
+                return renderingAdapter;
+            }
+        });
+    }
+
+    private void setAdapter(TilesViewAdapter tilesViewAdapter, TilesViewAdapterFactory renderingAdapterFactory) {
         clear();
         viewAlreadyLoaded = false;
         adapter = tilesViewAdapter;
         adapter.attachTilesView(this);
-        tilePool.setAdapter(adapter);
+        tilePool.setAdapter(adapter, renderingAdapterFactory);
         postInvalidate();
     }
 
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        double tilesOnWidth = Math.ceil(w / (TILE_SIZE * 0.9f)) + 1;
-        double tilesOnHeight = Math.ceil(h / (TILE_SIZE * 0.9f)) + 1;
-        int maxTilesOnScreen = (int) (tilesOnWidth * tilesOnHeight);
-        tilePool.setMaxTasks(maxTilesOnScreen);
+        updateMaxTasks();
+
+        // Content size depends on the view size, existing tiles are now wrong
+        if (oldw != 0 && oldh != 0 && (w != oldw || h != oldh)) {
+            tilePool.reset();
+        }
         applyScaleBounds();
     }
 
+    private void updateMaxTasks() {
+        // The rendered zoom level is kept until its tiles are shrunk by MIN_ZOOM_LEVEL_DIFF,
+        // and level 10 is drawn down to the minimum zoom level when zoomed out levels use it
+        float minTileScaleOnScreen = renderZoomedOutFromBaseLevel ?
+                Math.min(MIN_ZOOM_LEVEL_DIFF, MIN_ZOOM_LEVEL / 10f) : MIN_ZOOM_LEVEL_DIFF;
+        int maxTilesOnScreen = getMaxTilesOnScreen(TILE_SIZE * minTileScaleOnScreen, 0);
+
+        // Large tiles weigh more, keep room for the ones on screen and a ring around them
+        int maxTileSize = tilePool.getTileSize(MIN_ZOOM_LEVEL);
+        int maxTileWeight = (maxTileSize / TILE_SIZE) * (maxTileSize / TILE_SIZE);
+        int maxLargeTilesWeight = maxTileWeight * getMaxTilesOnScreen(maxTileSize * minTileScaleOnScreen, 1);
+
+        tilePool.setMaxTasks(maxTilesOnScreen, Math.max(maxTilesOnScreen * 2, maxLargeTilesWeight));
+    }
+
+    /**
+     * @param ring The number of tiles to add around the ones on screen.
+     */
+    private int getMaxTilesOnScreen(float minTileSizeOnScreen, int ring) {
+        double tilesOnWidth = Math.ceil(getWidth() / minTileSizeOnScreen) + 1 + ring * 2;
+        double tilesOnHeight = Math.ceil(getHeight() / minTileSizeOnScreen) + 1 + ring * 2;
+        return (int) (tilesOnWidth * tilesOnHeight);
+    }
+
     private void applyScaleBounds() {
         onScaleEnd(getWidth() / 2f, getHeight() / 2f, 1f);
     }
@@ -625,10 +1150,17 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         return scrollAndZoomDetector.onTouchEvent(event);
     }
 
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        tilePool.setVisible(visibility == VISIBLE);
+    }
+
     @Override
     public void onDown() {
         if (currentAnimator != null)
             currentAnimator.cancel();
+        tilePool.requestPriority();
     }
 
     @Override
@@ -654,6 +1186,7 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
             offsetX = Math.min(Math.max(offsetX, minOffsetX), maxOffsetX);
             offsetY = Math.min(Math.max(offsetY, minOffsetY), maxOffsetY);
 
+            viewAlreadyLoaded = false;
             invalidate();
         }
         return true;
@@ -687,11 +1220,38 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         }
 
         onScroll(contentFocusXAfter - contentFocusXBefore, contentFocusYAfter - contentFocusYBefore);
-        zoomLevel = Math.min(MAX_ZOOM_LEVEL, Math.max(MIN_ZOOM_LEVEL, newZoomLevelWithoutBounds));
+
+        // Keep rendering the current zoom level until the new one is settled
+        int newZoomLevel = renderedZoomLevel(newZoomLevelWithoutBounds);
+        if (newZoomLevel != targetZoomLevel) {
+            targetZoomLevel = newZoomLevel;
+            removeCallbacks(settleZoomLevelRunnable);
+            if (targetZoomLevel != zoomLevel)
+                postDelayed(settleZoomLevelRunnable, ZOOM_LEVEL_SETTLE_DELAY);
+        }
+        float zoomDiff = scale / (zoomLevel / 10f);
+        if (zoomDiff < MIN_ZOOM_LEVEL_DIFF || zoomDiff > MAX_ZOOM_LEVEL_DIFF) {
+            settleZoomLevel();
+        }
+
         invalidate();
         return true;
     }
 
+    /**
+     * Renders the zoom level of the current scale from now on, and
+     * cancels the tiles of other levels still waiting to be rendered.
+     */
+    private void settleZoomLevel() {
+        removeCallbacks(settleZoomLevelRunnable);
+        if (zoomLevel != targetZoomLevel) {
+            zoomLevel = targetZoomLevel;
+            tilePool.cancelPendingTiles(zoomLevel, destinationZoomLevel);
+            viewAlreadyLoaded = false;
+            invalidate();
+        }
+    }
+
     @Override
     public boolean onDoubleTap(final float focusX, final float focusY) {
         animateScaleTo(zoomLevelForScale(scale * 2f, SCALE_TYPE_ROUND) / 10f, focusX, focusY, DOUBLE_TAP_DURATION);
@@ -721,6 +1281,9 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         final float targetScale = zoomLevel / 10f;
         final float scaleOrigin = scale;
         final float scaleDistance = targetScale - scale;
+        prefetchTiles(targetScale,
+                x * targetScale - getWidth() / 2f,
+                y * targetScale - getHeight() / 2f);
 
         Runnable animation = new Runnable() {
             @Override
@@ -747,6 +1310,8 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
                         onScroll(xFinalOffset - offsetX, yFinalOffset - offsetY);
                     }
 
+                    destinationZoomLevel = 0;
+                    settleZoomLevel();
                     if (callback != null) {
                         callback.onAnimationFinish();
                     }
@@ -759,12 +1324,38 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         ViewCompat.postOnAnimation(this, animation);
     }
 
+    /**
+     * Requests the tiles of the screen at the end of an animation, so that they
+     * render during the animation, before the tiles of the intermediate frames.
+     */
+    private void prefetchTiles(float targetScale, float targetOffsetX, float targetOffsetY) {
+        if (adapter == null) return;
+        int targetZoomLevel = renderedZoomLevel(zoomLevelForScale(targetScale, SCALE_TYPE_ROUND));
+        destinationZoomLevel = targetZoomLevel;
+
+        float contentWidth = getContentWidth();
+        float contentHeight = getContentHeight();
+        float tileSizeOnScreen = tilePool.getTileSize(targetZoomLevel) * targetScale / (targetZoomLevel / 10f);
+        int xIndexStart = (int) Math.floor(targetOffsetX / tileSizeOnScreen);
+        int yIndexStart = (int) Math.floor(targetOffsetY / tileSizeOnScreen);
+        int xIndexStop = (int) Math.floor((targetOffsetX + getWidth()) / tileSizeOnScreen);
+        int yIndexStop = (int) Math.floor((targetOffsetY + getHeight()) / tileSizeOnScreen);
+        for (int xIndex = xIndexStart; xIndex <= xIndexStop; xIndex++) {
+            for (int yIndex = yIndexStart; yIndex <= yIndexStop; yIndex++) {
+                tilePool.prefetchTile(targetZoomLevel, xIndex, yIndex, contentWidth, contentHeight);
+            }
+        }
+    }
+
     public void getPositionInView(float x, float y, PointF position) {
         position.set(x * scale - offsetX, y * scale - offsetY);
     }
 
     private void animateScaleTo(final float newScale, final float focusXOnScreen, final float focusYOnScreen, final long duration) {
         if (currentAnimator != null) currentAnimator.cancel();
+        prefetchTiles(newScale,
+                (offsetX + focusXOnScreen) / scale * newScale - focusXOnScreen,
+                (offsetY + focusYOnScreen) / scale * newScale - focusYOnScreen);
         currentAnimator = ValueAnimator.ofFloat(scale, newScale)
                 .setDuration(duration)
                 .setInterpolator(DOUBLE_TAP_INTERPOLATOR)
@@ -780,6 +1371,8 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
                     if (animatedValue != newScale) {
                         onScale(newScale / scale, focusXOnScreen, focusYOnScreen);
                     }
+                    destinationZoomLevel = 0;
+                    settleZoomLevel();
 
                     onScaleEnd(focusXOnScreen, focusYOnScreen, 0f);
                 }
@@ -812,6 +1405,15 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
         }
     }
 
+    /**
+     * @return The zoom level whose tiles are drawn for the given zoom level.
+     */
+    private int renderedZoomLevel(int zoomLevel) {
+        zoomLevel = Math.min(MAX_ZOOM_LEVEL, Math.max(MIN_ZOOM_LEVEL, zoomLevel));
+        if (renderZoomedOutFromBaseLevel && zoomLevel < 10) return 10;
+        return zoomLevel;
+    }
+
     /**
      * Return an appropriate zoom level for the given scale
      */
@@ -848,6 +1450,26 @@ public class TilesView extends View implements ScrollAndZoomDetector.ScrollAndZo
 
     }
 
+    /**
+     * Call this from {@link TilesViewAdapter#drawTile(Canvas, float, float, float, float, float, float, float)}
+     * to know if the tile being rendered is still needed, and stop early if it's not.
+     * @return The cancellation token of the tile currently rendered on the calling thread.
+     * Outside of a rendering, the token is never cancelled.
+     */
+    public static CancellationToken getCancellationToken() {
+        return RenderingContext.getCancellationToken();
+    }
+
+    /**
+     * Shortcut for {@code getCancellationToken().isCancelled()}, which the base
+     * adapters expose to their subclasses as {@code isCancelled()}.
+     * @return True if the tile rendered on the calling thread is not needed anymore,
+     * adapters should stop drawing it early.
+     */
+    public static boolean isRenderingCancelled() {
+        return RenderingContext.getCancellationToken().isCancelled();
+    }
+
     public float getContentWidth() {
         return getWidth() - getPaddingLeft() - getPaddingRight() - getContentPaddingLeft() - getContentPaddingRight();
     }
@@ -11,7 +11,9 @@ import android.graphics.RectF;
  * In most cases you don't need to implement it directly,
  * but instead subclass {@link com.joanzapata.tilesview.adapter.DefaultAdapter}
  * or {@link com.joanzapata.tilesview.adapter.FixedSizeAdapter} depending
- * on your usecase.
+ * on your usecase. If your tiles come from an I/O-bound source, see
+ * {@link AsyncTilesViewAdapter}. If some tiles are much more expensive
+ * than others, see {@link TileCostEstimator}.
  */
 public interface TilesViewAdapter {
 
@@ -41,7 +43,8 @@ public interface TilesViewAdapter {
 
     /**
      * @return True if your implementation of {@link #drawTile(Canvas, float, float, float, float, float, float, float)} is thread safe, in which case the rendering
-     * will be significantly faster. Default is false.
+     * will be significantly faster. Default is false. If your adapter is not thread safe, consider
+     * {@link TilesView#setAdapter(TilesViewAdapterFactory)} to render tiles in parallel anyway.
      */
     boolean isThreadSafe();
 
@@ -55,6 +58,9 @@ public interface TilesViewAdapter {
      * <br>
      * You should draw the tile in the canvas at 0,0 and fill the canvas. You should use
      * canvas.getWidth() and canvas.getHeight() to determine the destination bounds.
+     * <br>
+     * If rendering takes long, check {@link TilesView#getCancellationToken()} from time to
+     * time and return early when the tile is not needed anymore.
      * @param canvas               The canvas on which you should draw.
      * @param xRatio               The X position of the current tile in your content, between 0 and 1, relative to contentInitialWidth.
      * @param yRatio               The Y position of the current tile in your content, between 0 and 1, relative to contentInitialHeight.
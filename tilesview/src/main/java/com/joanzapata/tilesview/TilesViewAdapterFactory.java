@@ -0,0 +1,21 @@
+package com.joanzapata.tilesview;
+
+/**
+ * Creates instances of an adapter which is not thread safe, see
+ * {@link TilesView#setAdapter(TilesViewAdapterFactory)}.
+ * <br>
+ * Most adapters are not thread safe only because they keep mutable
+ * drawing objects like Paint or RectF in fields. With a factory, each
+ * rendering thread gets its own instance, so tiles can still be rendered
+ * on all cores.
+ */
+public interface TilesViewAdapterFactory {
+
+    /**
+     * Called once for the UI thread, then from each rendering thread the first
+     * time it renders a tile. Idle rendering threads are stopped and replaced,
+     * so this is called again over time. Instances must not share mutable state.
+     */
+    TilesViewAdapter newAdapter();
+
+}
@@ -0,0 +1,46 @@
+package com.joanzapata.tilesview;
+
+/**
+ * Receives the stages of the scheduling and the rendering of the tiles, to find out
+ * what a slow frame or a slow tile spent its time on. Methods are called on the UI
+ * thread and on the rendering threads, implementations must be thread safe and fast.
+ * <br>
+ * Stages about a tile give its zoom level and indexes, the others give -1.
+ * @see TilesView#setTracer(Tracer)
+ * @see com.joanzapata.tilesview.tracer
+ */
+public interface Tracer {
+
+    /** Lookup of a tile in the cache by onDraw(), includes {@link #STAGE_ENQUEUE} on a miss */
+    int STAGE_GET_TILE = 0;
+
+    /** Submission of a tile to the rendering executor */
+    int STAGE_ENQUEUE = 1;
+
+    /** Time a tile waited in the queue, on no thread in particular */
+    int STAGE_QUEUE_WAIT = 2;
+
+    /** Drawing of a tile or the placeholder by the adapter */
+    int STAGE_DRAW_TILE = 3;
+
+    /** Handing a rendered tile over to the view */
+    int STAGE_PUBLISH = 4;
+
+    /** The whole onDraw() of the view */
+    int STAGE_ON_DRAW = 5;
+
+    /**
+     * Starts a stage on the calling thread. Stages of a thread are nested,
+     * each one ends with {@link #endStage(int)} on the same thread.
+     */
+    void beginStage(int stage, int zoomLevel, int xIndex, int yIndex);
+
+    void endStage(int stage);
+
+    /**
+     * Reports a stage which is over, and didn't run on a single thread, like {@link #STAGE_QUEUE_WAIT}.
+     * @param startNanos {@link System#nanoTime()} at the start.
+     * @param endNanos   {@link System#nanoTime()} at the end.
+     */
+    void traceStage(int stage, int zoomLevel, int xIndex, int yIndex, long startNanos, long endNanos);
+}
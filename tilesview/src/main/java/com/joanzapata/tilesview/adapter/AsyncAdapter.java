@@ -0,0 +1,175 @@
+package com.joanzapata.tilesview.adapter;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import com.joanzapata.tilesview.AsyncTilesViewAdapter;
+import com.joanzapata.tilesview.CancellationToken;
+import com.joanzapata.tilesview.TileRequest;
+import com.joanzapata.tilesview.TilesView;
+
+/**
+ * Subclass this adapter when your tiles come from an I/O-bound source,
+ * for example files on the storage or a local tile service.
+ * <br>
+ * Implement {@link #requestTile(TileRequest)} to start loading the tile,
+ * then call {@link TileRequest#complete(android.graphics.Bitmap)} once it's
+ * loaded, from any thread.
+ */
+public abstract class AsyncAdapter extends DefaultAdapter implements AsyncTilesViewAdapter {
+
+    /** How often a blocking drawTile() checks if its tile is still needed */
+    private static final long CANCELLATION_CHECK_INTERVAL = 50;
+
+    private static final Paint CONTENT_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    @Override
+    public abstract void requestTile(TileRequest tileRequest);
+
+    /**
+     * The TilesView always uses {@link #requestTile(TileRequest)}. This is for callers which
+     * draw tiles synchronously, like a wrapping adapter: it requests the tile and blocks until
+     * it's completed, or until the tile being rendered on the calling thread is cancelled.
+     */
+    @Override
+    public void drawTile(Canvas canvas, float xRatio, float yRatio, float widthRatio, float heightRatio, float contentInitialWidth, float contentInitialHeight, float scale) {
+        CancellationToken cancellationToken = TilesView.getCancellationToken();
+        BlockingTileRequest request = new BlockingTileRequest(canvas, cancellationToken,
+                xRatio, yRatio, widthRatio, heightRatio,
+                contentInitialWidth, contentInitialHeight, scale);
+        requestTile(request);
+        try {
+            request.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // No-op if completed, otherwise lets the adapter stop loading
+        request.cancel();
+    }
+
+    /**
+     * Draws the content right into the canvas of a synchronous drawTile().
+     */
+    private static class BlockingTileRequest implements TileRequest {
+
+        private final Canvas canvas;
+        private final CancellationToken cancellationToken;
+        private final float xRatio, yRatio, widthRatio, heightRatio;
+        private final float contentWidth, contentHeight, scale;
+        private boolean cancelled, completed;
+        private OnCancelListener onCancelListener;
+
+        BlockingTileRequest(Canvas canvas, CancellationToken cancellationToken,
+                            float xRatio, float yRatio,
+                            float widthRatio, float heightRatio,
+                            float contentWidth, float contentHeight, float scale) {
+            this.canvas = canvas;
+            this.cancellationToken = cancellationToken;
+            this.xRatio = xRatio;
+            this.yRatio = yRatio;
+            this.widthRatio = widthRatio;
+            this.heightRatio = heightRatio;
+            this.contentWidth = contentWidth;
+            this.contentHeight = contentHeight;
+            this.scale = scale;
+        }
+
+        /** Returns once completed, cancelled, or no longer needed by the calling thread */
+        synchronized void await() throws InterruptedException {
+            while (!completed && !cancelled && !cancellationToken.isCancelled()) {
+                wait(CANCELLATION_CHECK_INTERVAL);
+            }
+        }
+
+        void cancel() {
+            OnCancelListener listener;
+            synchronized (this) {
+                if (cancelled || completed) return;
+                cancelled = true;
+                listener = onCancelListener;
+                notifyAll();
+            }
+            if (listener != null) {
+                listener.onCancel(this);
+            }
+        }
+
+        @Override
+        public float getXRatio() {
+            return xRatio;
+        }
+
+        @Override
+        public float getYRatio() {
+            return yRatio;
+        }
+
+        @Override
+        public float getWidthRatio() {
+            return widthRatio;
+        }
+
+        @Override
+        public float getHeightRatio() {
+            return heightRatio;
+        }
+
+        @Override
+        public float getContentInitialWidth() {
+            return contentWidth;
+        }
+
+        @Override
+        public float getContentInitialHeight() {
+            return contentHeight;
+        }
+
+        @Override
+        public float getScale() {
+            return scale;
+        }
+
+        @Override
+        public int getWidth() {
+            return canvas.getWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return canvas.getHeight();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            synchronized (this) {
+                if (cancelled) return true;
+            }
+            return cancellationToken.isCancelled();
+        }
+
+        @Override
+        public void setOnCancelListener(OnCancelListener onCancelListener) {
+            boolean alreadyCancelled;
+            synchronized (this) {
+                this.onCancelListener = onCancelListener;
+                alreadyCancelled = cancelled;
+            }
+            if (alreadyCancelled && onCancelListener != null) {
+                onCancelListener.onCancel(this);
+            }
+        }
+
+        @Override
+        public synchronized void complete(Bitmap bitmap) {
+            if (cancelled || completed) return;
+            // The caller may recycle the bitmap right after, draw it now
+            if (bitmap != null && !bitmap.isRecycled()) {
+                canvas.drawBitmap(bitmap, null, new Rect(0, 0, canvas.getWidth(), canvas.getHeight()), CONTENT_PAINT);
+            }
+            completed = true;
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.joanzapata.tilesview.adapter;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import com.joanzapata.tilesview.CancellationToken;
+import com.joanzapata.tilesview.TilesView;
+import com.joanzapata.tilesview.internal.RenderingContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.joanzapata.tilesview.TilesView.TILE_SIZE;
+
+/**
+ * Use this adapter to stack several independent {@link Layer}s, for example
+ * a base image, a heatmap and an annotation layer.
+ * <br>
+ * Each layer keeps its own cache of rendered tiles and can be invalidated
+ * on its own. When a tile is requested, only the layers which don't have it
+ * in cache are rendered, in parallel, then all layers are composited on the
+ * tile in the order they were given. This way refreshing the heatmap never
+ * renders the base image again.
+ * <br>
+ * Layers tiles are ARGB_8888 bitmaps, so each cached tile costs
+ * tileSize * tileSize * 4 bytes per layer, TILE_SIZE by default.
+ */
+public class CompositeAdapter extends DefaultAdapter {
+
+    private static final int DEFAULT_CACHE_SIZE = 64;
+
+    private static final long LAYERS_THREADS_KEEP_ALIVE = 30;
+
+    private final List<Layer> layers;
+
+    private final ThreadPoolExecutor layersExecutor;
+
+    public CompositeAdapter(Layer... layers) {
+        this(DEFAULT_CACHE_SIZE, layers);
+    }
+
+    /**
+     * @param cacheSize The number of tiles each layer keeps in memory.
+     * @param layers    The layers, from bottom to top.
+     */
+    public CompositeAdapter(int cacheSize, Layer... layers) {
+        this.layers = Collections.unmodifiableList(Arrays.asList(layers));
+        for (int i = 0; i < layers.length; i++) {
+            layers[i].attach(this, cacheSize);
+        }
+
+        int nbCores = Runtime.getRuntime().availableProcessors();
+        layersExecutor = new ThreadPoolExecutor(nbCores, nbCores,
+                LAYERS_THREADS_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "TilesView-layer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        layersExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public List<Layer> getLayers() {
+        return layers;
+    }
+
+    /**
+     * Layers which are not thread safe are rendered one tile at a time,
+     * so this adapter is always thread safe.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public void drawTile(final Canvas canvas,
+                         final float xRatio, final float yRatio,
+                         final float widthRatio, final float heightRatio,
+                         final float contentInitialWidth, final float contentInitialHeight,
+                         final float scale) {
+
+        // Only regular tiles are cached, the placeholder is drawn directly
+        TilesView tilesView = getTilesView();
+        final int tileSize = tilesView != null ? tilesView.getTileSize(scale) : TILE_SIZE;
+        if (canvas.getWidth() != tileSize || canvas.getHeight() != tileSize) {
+            for (int i = 0, size = layers.size(); i < size; i++) {
+                canvas.save();
+                layers.get(i).render(canvas,
+                        xRatio, yRatio, widthRatio, heightRatio,
+                        contentInitialWidth, contentInitialHeight, scale);
+                canvas.restore();
+            }
+            return;
+        }
+
+        // Collect what's already in cache, and what's missing
+        final Bitmap[] layersBitmaps = new Bitmap[layers.size()];
+        List<Integer> missingLayers = null;
+        for (int i = 0, size = layers.size(); i < size; i++) {
+            layersBitmaps[i] = layers.get(i).getCachedTile(
+                    xRatio, yRatio, widthRatio, heightRatio,
+                    contentInitialWidth, contentInitialHeight, scale, tileSize);
+            if (layersBitmaps[i] == null) {
+                if (missingLayers == null) missingLayers = new ArrayList<Integer>();
+                missingLayers.add(i);
+            }
+        }
+
+        // Render missing layers in parallel, the last one on the current thread
+        if (missingLayers != null) {
+            final CancellationToken cancellationToken = RenderingContext.getCancellationToken();
+            List<Future<?>> futures = new ArrayList<Future<?>>(missingLayers.size() - 1);
+            for (int i = 0, size = missingLayers.size() - 1; i < size; i++) {
+                final int layerIndex = missingLayers.get(i);
+                futures.add(layersExecutor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        if (cancellationToken.isCancelled()) return null;
+                        RenderingContext.setCancellationToken(cancellationToken);
+                        try {
+                            layersBitmaps[layerIndex] = layers.get(layerIndex).renderAndCache(
+                                    xRatio, yRatio, widthRatio, heightRatio,
+                                    contentInitialWidth, contentInitialHeight, scale, tileSize);
+                        } finally {
+                            RenderingContext.setCancellationToken(null);
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            int lastLayerIndex = missingLayers.get(missingLayers.size() - 1);
+            layersBitmaps[lastLayerIndex] = layers.get(lastLayerIndex).renderAndCache(
+                    xRatio, yRatio, widthRatio, heightRatio,
+                    contentInitialWidth, contentInitialHeight, scale, tileSize);
+
+            try {
+                for (int i = 0, size = futures.size(); i < size; i++) {
+                    futures.get(i).get();
+                }
+            } catch (InterruptedException e) {
+                // The TilesView is shutting down its rendering threads
+                for (int i = 0, size = futures.size(); i < size; i++) {
+                    futures.get(i).cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Unable to render a layer", e.getCause());
+            }
+
+            // Layers may have stopped early, the tile will be discarded anyway
+            if (cancellationToken.isCancelled()) return;
+        }
+
+        // Composite all layers on the tile
+        for (int i = 0; i < layersBitmaps.length; i++) {
+            canvas.drawBitmap(layersBitmaps[i], 0, 0, null);
+        }
+    }
+
+    private void invalidateTiles(float l, float t, float r, float b) {
+        TilesView tilesView = getTilesView();
+        if (tilesView != null) {
+            tilesView.invalidateTiles(l, t, r, b);
+        }
+    }
+
+    /**
+     * A layer of a {@link CompositeAdapter}. Implement {@link #drawTile(Canvas, float, float, float, float, float, float, float)}
+     * exactly as you would in {@link DefaultAdapter}, except the tile starts transparent
+     * instead of being filled with the TilesView background.
+     */
+    public abstract static class Layer {
+
+        private CompositeAdapter compositeAdapter;
+
+        /** Used to render one tile at a time when the layer is not thread safe */
+        private final Object renderLock = new Object();
+
+        private Map<Long, CachedTile> cache;
+
+        private float cachedContentWidth, cachedContentHeight;
+
+        /**
+         * Incremented on each invalidation, so that a rendering
+         * started before an invalidation is not cached.
+         */
+        private int version;
+
+        private void attach(CompositeAdapter compositeAdapter, final int cacheSize) {
+            if (this.compositeAdapter != null)
+                throw new IllegalStateException("A layer can only be used by a single CompositeAdapter.");
+            this.compositeAdapter = compositeAdapter;
+            this.cache = new LinkedHashMap<Long, CachedTile>(cacheSize, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedTile> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+        }
+
+        /**
+         * @return True if your implementation of {@link #drawTile(Canvas, float, float, float, float, float, float, float)}
+         * is thread safe, in which case this layer can render several tiles at the same time. Default is false.
+         */
+        public boolean isThreadSafe() {
+            // Default value, can be overridden
+            return false;
+        }
+
+        /**
+         * Renders a tile of this layer.
+         * @see com.joanzapata.tilesview.TilesViewAdapter#drawTile(Canvas, float, float, float, float, float, float, float)
+         */
+        protected abstract void drawTile(Canvas canvas,
+                                         float xRatio, float yRatio,
+                                         float widthRatio, float heightRatio,
+                                         float contentInitialWidth, float contentInitialHeight,
+                                         float scale);
+
+        /** @see TilesView#isRenderingCancelled() */
+        protected boolean isCancelled() {
+            return TilesView.isRenderingCancelled();
+        }
+
+        /**
+         * Drops every cached tile of this layer and renders it again. Other layers are not rendered again.
+         */
+        public void invalidate() {
+            synchronized (this) {
+                version++;
+                cache.clear();
+            }
+            compositeAdapter.invalidateTiles(0, 0, cachedContentWidth, cachedContentHeight);
+        }
+
+        /**
+         * Drops the cached tiles of this layer in the given bounds and renders them again.
+         * Other layers are not rendered again. Bounds are relative to the content, like
+         * {@link TilesView#invalidateTiles(float, float, float, float)}.
+         */
+        public void invalidate(float l, float t, float r, float b) {
+            synchronized (this) {
+                version++;
+                Iterator<CachedTile> iterator = cache.values().iterator();
+                while (iterator.hasNext()) {
+                    CachedTile cachedTile = iterator.next();
+                    if (l < cachedTile.right && cachedTile.left < r
+                            && t < cachedTile.bottom && cachedTile.top < b) {
+                        iterator.remove();
+                    }
+                }
+            }
+            compositeAdapter.invalidateTiles(l, t, r, b);
+        }
+
+        private void render(Canvas canvas,
+                            float xRatio, float yRatio,
+                            float widthRatio, float heightRatio,
+                            float contentInitialWidth, float contentInitialHeight,
+                            float scale) {
+            if (isThreadSafe()) {
+                drawTile(canvas, xRatio, yRatio, widthRatio, heightRatio,
+                        contentInitialWidth, contentInitialHeight, scale);
+            } else {
+                synchronized (renderLock) {
+                    drawTile(canvas, xRatio, yRatio, widthRatio, heightRatio,
+                            contentInitialWidth, contentInitialHeight, scale);
+                }
+            }
+        }
+
+        private synchronized Bitmap getCachedTile(float xRatio, float yRatio,
+                                                  float widthRatio, float heightRatio,
+                                                  float contentInitialWidth, float contentInitialHeight,
+                                                  float scale, int tileSize) {
+            if (contentInitialWidth != cachedContentWidth || contentInitialHeight != cachedContentHeight) {
+                // Content has been resized, nothing in cache is usable anymore
+                version++;
+                cache.clear();
+                cachedContentWidth = contentInitialWidth;
+                cachedContentHeight = contentInitialHeight;
+                return null;
+            }
+            CachedTile cachedTile = cache.get(key(xRatio, yRatio, widthRatio, heightRatio, scale));
+            // The tile size of this zoom level may have changed since
+            if (cachedTile == null || cachedTile.bitmap.getWidth() != tileSize) return null;
+            return cachedTile.bitmap;
+        }
+
+        private Bitmap renderAndCache(float xRatio, float yRatio,
+                                      float widthRatio, float heightRatio,
+                                      float contentInitialWidth, float contentInitialHeight,
+                                      float scale, int tileSize) {
+            int versionBefore;
+            synchronized (this) {
+                versionBefore = version;
+            }
+
+            Bitmap bitmap = Bitmap.createBitmap(tileSize, tileSize, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            canvas.drawColor(Color.TRANSPARENT);
+            render(canvas, xRatio, yRatio, widthRatio, heightRatio,
+                    contentInitialWidth, contentInitialHeight, scale);
+
+            // Don't cache a tile which may have been rendered partially
+            if (isCancelled()) {
+                return bitmap;
+            }
+
+            synchronized (this) {
+                // Don't cache a tile which has been invalidated while rendering
+                if (versionBefore == version) {
+                    cache.put(key(xRatio, yRatio, widthRatio, heightRatio, scale), new CachedTile(bitmap,
+                            xRatio * contentInitialWidth,
+                            yRatio * contentInitialHeight,
+                            (xRatio + widthRatio) * contentInitialWidth,
+                            (yRatio + heightRatio) * contentInitialHeight));
+                }
+            }
+
+            return bitmap;
+        }
+
+        private static long key(float xRatio, float yRatio, float widthRatio, float heightRatio, float scale) {
+            long zoomLevel = Math.round(scale * 10);
+            long xIndex = Math.round(xRatio / widthRatio);
+            long yIndex = Math.round(yRatio / heightRatio);
+            return (zoomLevel << 42) | (xIndex << 21) | yIndex;
+        }
+    }
+
+    private static class CachedTile {
+
+        final Bitmap bitmap;
+
+        /** Bounds of the tile on the content */
+        final float left, top, right, bottom;
+
+        CachedTile(Bitmap bitmap, float left, float top, float right, float bottom) {
+            this.bitmap = bitmap;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+    }
+}
@@ -17,6 +17,10 @@ public abstract class DefaultAdapter implements TilesViewAdapter {
         this.tilesView = tilesView;
     }
 
+    protected TilesView getTilesView() {
+        return tilesView;
+    }
+
     @Override
     public boolean isThreadSafe() {
         // Default value, can be overridden
@@ -33,6 +37,11 @@ public abstract class DefaultAdapter implements TilesViewAdapter {
     @Override
     public abstract void drawTile(Canvas canvas, float xRatio, float yRatio, float widthRatio, float heightRatio, float contentInitialWidth, float contentInitialHeight, float scale);
 
+    /** @see TilesView#isRenderingCancelled() */
+    protected boolean isCancelled() {
+        return TilesView.isRenderingCancelled();
+    }
+
     @Override
     public void onClick(float xRatio, float yRatio, float contentInitialWidth, float contentInitialHeight, float scale) {
         // Default do nothing.
@@ -194,6 +194,11 @@ public abstract class FixedSizeAdapter implements TilesViewAdapter {
      */
     protected abstract void drawTile(Canvas canvas, RectF sourceRect, RectF destRect);
 
+    /** @see TilesView#isRenderingCancelled() */
+    protected boolean isCancelled() {
+        return TilesView.isRenderingCancelled();
+    }
+
     public void drawLayer(Canvas canvas, float scale) {
         // Default implementation does nothing
     }
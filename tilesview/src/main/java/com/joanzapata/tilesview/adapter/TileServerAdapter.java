@@ -0,0 +1,317 @@
+package com.joanzapata.tilesview.adapter;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.Log;
+
+import com.joanzapata.tilesview.TileRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Displays tiles served by a tile server, like a local tile service,
+ * using a z/x/y URL template, for example {@code http://127.0.0.1:8080/tiles/{z}/{x}/{y}.png}.
+ * A {@code file://} template works as well.
+ * <br>
+ * The server pyramid covers a square from the top left corner of the content, as large as
+ * the largest side of the content: at zoom z this square is split in 2^z columns and 2^z rows
+ * of square tiles, and the part of the content outside of it is left as background.
+ * For each TilesView tile this adapter picks the smallest z whose resolution is at least
+ * the resolution of the tile, loads the server tiles covering it and completes the request
+ * with the result, which then lives in the normal TilesView tile cache.
+ * <br>
+ * Connections are kept alive and reused between requests, at most {@code maxConcurrentRequests}
+ * requests run at the same time, most recent first. When a tile is evicted or cancelled
+ * by the TilesView its in-flight requests are aborted.
+ */
+public class TileServerAdapter extends AsyncAdapter {
+
+    private static final String TAG = TileServerAdapter.class.getSimpleName();
+
+    public static final int DEFAULT_SERVER_TILE_SIZE = 256;
+    public static final int DEFAULT_MIN_ZOOM = 0;
+    public static final int DEFAULT_MAX_ZOOM = 18;
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final int READ_TIMEOUT = 10000;
+    private static final long REQUEST_THREADS_KEEP_ALIVE = 30;
+    private static final Paint PART_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private final String urlTemplate;
+    private final int serverTileSize;
+    private final int minZoom, maxZoom;
+    private final ThreadPoolExecutor requestsExecutor;
+
+    /** Used to consume responses until the end, which allows the connection to be reused */
+    private final ThreadLocal<byte[]> drainBufferTL = new ThreadLocal<byte[]>();
+
+    public TileServerAdapter(String urlTemplate) {
+        this(urlTemplate, DEFAULT_SERVER_TILE_SIZE, DEFAULT_MIN_ZOOM, DEFAULT_MAX_ZOOM, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * @param urlTemplate           The URL of a tile, where {z}, {x} and {y} are replaced by the tile coordinates.
+     * @param serverTileSize        The size in pixels of the tiles of the server.
+     * @param minZoom               The lowest zoom available on the server.
+     * @param maxZoom               The highest zoom available on the server.
+     * @param maxConcurrentRequests The maximum number of requests running at the same time.
+     */
+    public TileServerAdapter(String urlTemplate, int serverTileSize, int minZoom, int maxZoom, int maxConcurrentRequests) {
+        this.urlTemplate = urlTemplate;
+        this.serverTileSize = serverTileSize;
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.requestsExecutor = new ThreadPoolExecutor(maxConcurrentRequests, maxConcurrentRequests,
+                REQUEST_THREADS_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingDeque<Runnable>() {
+                    @Override
+                    public boolean offer(Runnable runnable) {
+                        return offerFirst(runnable);
+                    }
+                },
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "TilesView-request");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        this.requestsExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Requests are only dispatched to the requests threads, so this is thread safe.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public void requestTile(TileRequest tileRequest) {
+        if (tileRequest.isCancelled()) return;
+
+        // Pick the smallest server zoom with enough resolution for this tile
+        float contentSize = Math.max(tileRequest.getContentInitialWidth(), tileRequest.getContentInitialHeight());
+        double exactZoom = Math.log(contentSize * tileRequest.getScale() / serverTileSize) / Math.log(2);
+        int z = Math.min(Math.max((int) Math.ceil(exactZoom), minZoom), maxZoom);
+        int nbTiles = 1 << z;
+
+        // Bounds of the requested tile relative to the square covered by the pyramid
+        float xRatio = tileRequest.getXRatio() * tileRequest.getContentInitialWidth() / contentSize;
+        float yRatio = tileRequest.getYRatio() * tileRequest.getContentInitialHeight() / contentSize;
+        float widthRatio = tileRequest.getWidthRatio() * tileRequest.getContentInitialWidth() / contentSize;
+        float heightRatio = tileRequest.getHeightRatio() * tileRequest.getContentInitialHeight() / contentSize;
+
+        // Find the server tiles covering the requested tile
+        int xStart = Math.max(0, (int) Math.floor(xRatio * nbTiles));
+        int yStart = Math.max(0, (int) Math.floor(yRatio * nbTiles));
+        int xStop = Math.min(nbTiles - 1, (int) Math.ceil((xRatio + widthRatio) * nbTiles) - 1);
+        int yStop = Math.min(nbTiles - 1, (int) Math.ceil((yRatio + heightRatio) * nbTiles) - 1);
+        if (xStart > xStop || yStart > yStop) {
+            tileRequest.complete(null);
+            return;
+        }
+
+        // Keep the part outside of the pyramid transparent, so that it shows the background
+        boolean opaque = xRatio >= 0 && yRatio >= 0 && xRatio + widthRatio <= 1 && yRatio + heightRatio <= 1;
+        Composition composition = new Composition(tileRequest, (xStop - xStart + 1) * (yStop - yStart + 1), opaque);
+        for (int x = xStart; x <= xStop; x++) {
+            for (int y = yStart; y <= yStop; y++) {
+
+                // Bounds of the server tile on the requested tile
+                float left = (x / (float) nbTiles - xRatio) / widthRatio * tileRequest.getWidth();
+                float top = (y / (float) nbTiles - yRatio) / heightRatio * tileRequest.getHeight();
+                float right = ((x + 1) / (float) nbTiles - xRatio) / widthRatio * tileRequest.getWidth();
+                float bottom = ((y + 1) / (float) nbTiles - yRatio) / heightRatio * tileRequest.getHeight();
+
+                composition.load(getTileUrl(z, x, y), left, top, right, bottom);
+            }
+        }
+
+        tileRequest.setOnCancelListener(composition);
+    }
+
+    /**
+     * Returns the URL of the given server tile. Can be overridden
+     * if the URL template is not flexible enough.
+     */
+    protected String getTileUrl(int z, int x, int y) {
+        return urlTemplate
+                .replace("{z}", String.valueOf(z))
+                .replace("{x}", String.valueOf(x))
+                .replace("{y}", String.valueOf(y));
+    }
+
+    private Bitmap download(String url, Composition composition) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        if (!composition.register(connection)) return null;
+
+        InputStream inputStream = null;
+        try {
+            if (connection instanceof HttpURLConnection) {
+                HttpURLConnection httpConnection = (HttpURLConnection) connection;
+                int responseCode = httpConnection.getResponseCode();
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    // Missing tile, still consume the body so that the connection can be reused
+                    inputStream = httpConnection.getErrorStream();
+                    drain(inputStream);
+                    return null;
+                }
+            }
+
+            inputStream = connection.getInputStream();
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            Bitmap bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+            drain(inputStream);
+            return bitmap;
+        } finally {
+            if (inputStream != null) {
+                inputStream.close();
+            }
+            composition.unregister(connection);
+        }
+    }
+
+    private void drain(InputStream inputStream) throws IOException {
+        if (inputStream == null) return;
+        byte[] buffer = drainBufferTL.get();
+        if (buffer == null) {
+            buffer = new byte[4096];
+            drainBufferTL.set(buffer);
+        }
+        while (inputStream.read(buffer) != -1) {
+            // Discard the remaining bytes
+        }
+    }
+
+    /**
+     * Assembles the server tiles of a single TilesView tile.
+     */
+    private class Composition implements TileRequest.OnCancelListener {
+
+        private final TileRequest tileRequest;
+        private final boolean opaque;
+        private final List<Future<?>> futures;
+        private final List<URLConnection> connections;
+        private Bitmap bitmap;
+        private Canvas canvas;
+        private int remainingParts;
+        private boolean cancelled;
+
+        Composition(TileRequest tileRequest, int nbParts, boolean opaque) {
+            this.tileRequest = tileRequest;
+            this.opaque = opaque;
+            this.remainingParts = nbParts;
+            this.futures = new ArrayList<Future<?>>(nbParts);
+            this.connections = new ArrayList<URLConnection>(nbParts);
+        }
+
+        void load(final String url, final float left, final float top, final float right, final float bottom) {
+            Future<?> future = requestsExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    Bitmap part = null;
+                    try {
+                        if (!tileRequest.isCancelled()) {
+                            part = download(url, Composition.this);
+                        }
+                    } catch (IOException e) {
+                        if (!tileRequest.isCancelled()) {
+                            Log.w(TAG, "Unable to load " + url, e);
+                        }
+                    }
+                    onPartLoaded(part, left, top, right, bottom);
+                }
+            });
+            synchronized (this) {
+                futures.add(future);
+                if (cancelled) future.cancel(true);
+            }
+        }
+
+        synchronized boolean register(URLConnection connection) {
+            if (cancelled) return false;
+            connections.add(connection);
+            return true;
+        }
+
+        synchronized void unregister(URLConnection connection) {
+            connections.remove(connection);
+        }
+
+        private void onPartLoaded(Bitmap part, float left, float top, float right, float bottom) {
+            boolean done;
+            Bitmap completed = null;
+            synchronized (this) {
+                if (!cancelled && part != null) {
+                    if (bitmap == null) {
+                        bitmap = Bitmap.createBitmap(tileRequest.getWidth(), tileRequest.getHeight(),
+                                opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888);
+                        canvas = new Canvas(bitmap);
+                    }
+                    RectF dest = new RectF();
+                    dest.set(left, top, right, bottom);
+                    canvas.drawBitmap(part, null, dest, PART_PAINT);
+                }
+                if (part != null) part.recycle();
+                remainingParts--;
+                done = remainingParts == 0 && !cancelled;
+                if (done) {
+                    // The bitmap now belongs to this thread only
+                    completed = bitmap;
+                    bitmap = null;
+                }
+            }
+
+            if (done) {
+                tileRequest.complete(completed);
+                if (completed != null) completed.recycle();
+            }
+        }
+
+        @Override
+        public void onCancel(TileRequest tileRequest) {
+            List<URLConnection> connectionsToAbort;
+            synchronized (this) {
+                cancelled = true;
+                for (int i = 0, size = futures.size(); i < size; i++) {
+                    futures.get(i).cancel(true);
+                }
+                connectionsToAbort = new ArrayList<URLConnection>(connections);
+                connections.clear();
+                if (bitmap != null) {
+                    bitmap.recycle();
+                    bitmap = null;
+                }
+            }
+
+            // Abort in-flight requests, the connection can't be reused
+            for (int i = 0, size = connectionsToAbort.size(); i < size; i++) {
+                URLConnection connection = connectionsToAbort.get(i);
+                if (connection instanceof HttpURLConnection) {
+                    ((HttpURLConnection) connection).disconnect();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.joanzapata.tilesview.internal;
+
+import android.os.SystemClock;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records the gestures of a TilesView in a ring buffer allocated once, keeping the most recent events.
+ * <br>
+ * Traces are written in a big endian binary format: the magic number {@link #MAGIC}, the version
+ * byte {@link #VERSION}, the number of events as an int, then for each event its type as a byte,
+ * its time in ms since the first event as an int, and the floats of the event, as many as
+ * {@link #getNbArgs(int)}. Arguments are in the order of the ScrollAndZoomListener methods.
+ */
+public class GestureRecorder {
+
+    public static final int MAGIC = 0x54564754; // "TVGT"
+    public static final int VERSION = 1;
+
+    public static final int EVENT_DOWN = 0;
+    public static final int EVENT_SCROLL = 1;
+    public static final int EVENT_SCALE = 2;
+    public static final int EVENT_SCALE_END = 3;
+    public static final int EVENT_DOUBLE_TAP = 4;
+    public static final int EVENT_FLING = 5;
+
+    private static final int[] NB_ARGS = {0, 2, 3, 3, 2, 2};
+
+    private static final int MAX_ARGS = 3;
+
+    private final byte[] types;
+    private final long[] times;
+    private final float[] args;
+
+    /** Index of the next event to write, and number of events kept */
+    private int next, size;
+
+    public GestureRecorder(int capacity) {
+        types = new byte[capacity];
+        times = new long[capacity];
+        args = new float[capacity * MAX_ARGS];
+    }
+
+    public static int getNbArgs(int eventType) {
+        return NB_ARGS[eventType];
+    }
+
+    public synchronized void record(int type, float arg0, float arg1, float arg2) {
+        types[next] = (byte) type;
+        times[next] = SystemClock.uptimeMillis();
+        int argsIndex = next * MAX_ARGS;
+        args[argsIndex] = arg0;
+        args[argsIndex + 1] = arg1;
+        args[argsIndex + 2] = arg2;
+        next = (next + 1) % types.length;
+        if (size < types.length) size++;
+    }
+
+    /**
+     * Writes the events kept, oldest first, without closing the stream.
+     */
+    public synchronized void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(size);
+        int first = (next - size + types.length) % types.length;
+        for (int i = 0; i < size; i++) {
+            int index = (first + i) % types.length;
+            int type = types[index];
+            out.writeByte(type);
+            out.writeInt((int) (times[index] - times[first]));
+            for (int arg = 0; arg < NB_ARGS[type]; arg++) {
+                out.writeFloat(args[index * MAX_ARGS + arg]);
+            }
+        }
+        out.flush();
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        size = 0;
+    }
+}
@@ -1,66 +1,161 @@
 package com.joanzapata.tilesview.internal;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
+import android.os.SystemClock;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
-public class LIFOExecutor {
+/**
+ * Runs the tasks with the highest priority first, then the cheapest, then the most
+ * recent ones, and drops the lowest priority, oldest ones when the capacity is reached.
+ * <br>
+ * The number of threads is adjusted between the given bounds from the measured
+ * rendering cost: CPU bound tasks get one thread per core minus one, left to the
+ * UI thread, tasks mostly waiting on I/O get more. It never exceeds the number
+ * of tasks available, and idle threads are released after a few seconds.
+ */
+public class LIFOExecutor implements RenderExecutor {
 
-    private ThreadPoolExecutor threadPoolExecutor;
+    private static final long THREADS_KEEP_ALIVE = 10;
 
-    private BlockingDeque<Runnable> workQueue;
+    /** Rendering time accumulated before the thread count is reevaluated */
+    private static final long SAMPLING_WINDOW_MS = 200;
 
-    private Map<Runnable, Cancellable> cancellables;
+    /** Below this CPU/wall time ratio, tasks are considered waiting rather than computing */
+    private static final float MIN_CPU_RATIO = 0.1f;
+
+    private ThreadPoolExecutor threadPoolExecutor;
+
+    private BlockingQueue<Runnable> workQueue;
 
     private int capacity;
 
+    private long nextSequence;
+
+    private final int minThreads, maxThreads;
+
+    /** Cores available for rendering */
+    private final int nbRenderingCores;
+
+    /** Start wall time and CPU time of the task running on the current thread */
+    private final ThreadLocal<long[]> taskStartTL = new ThreadLocal<long[]>();
+
+    private long windowWallTime, windowCpuTime;
+
+    /** Measured CPU time / wall time of the tasks, assume CPU bound until measured */
+    private volatile float cpuRatio = 1f;
+
     public LIFOExecutor(int nbThreads) {
-        cancellables = new HashMap<Runnable, Cancellable>();
-        workQueue = new LinkedBlockingDeque<Runnable>() {
+        this(nbThreads, nbThreads);
+    }
+
+    /**
+     * @param minThreads The minimum number of threads, as long as there are enough tasks.
+     * @param maxThreads The maximum number of threads, reached if tasks are mostly waiting.
+     */
+    public LIFOExecutor(int minThreads, int maxThreads) {
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.nbRenderingCores = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        workQueue = new PriorityBlockingQueue<Runnable>() {
             @Override
             public boolean offer(Runnable runnable) {
                 while (size() >= capacity) {
-                    Runnable futureTask = pollLast();
-
-                    // Other threads may have handled all remaining tasks so the queue is empty
-                    if (futureTask != null) {
-                        Cancellable cancellable = cancellables.remove(futureTask);
-                        if (cancellable != null) {
-                            cancellable.cancel();
-                        } else {
-                            submit(futureTask);
-                        }
+                    RenderTask taskToDrop = RenderTask.findTaskToDrop(this);
+                    if (taskToDrop == null) break;
+
+                    // Other threads may have taken it in the meantime
+                    if (remove(taskToDrop)) {
+                        taskToDrop.drop();
                     }
                 }
-                return offerFirst(runnable);
+                return super.offer(runnable);
             }
         };
 
-        threadPoolExecutor = new ThreadPoolExecutor(nbThreads, nbThreads, 0, TimeUnit.SECONDS, workQueue) {
+        threadPoolExecutor = new ThreadPoolExecutor(
+                getTargetThreads(), maxThreads,
+                THREADS_KEEP_ALIVE, TimeUnit.SECONDS, workQueue) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                long[] taskStart = taskStartTL.get();
+                if (taskStart == null) {
+                    taskStart = new long[2];
+                    taskStartTL.set(taskStart);
+                }
+                taskStart[0] = SystemClock.uptimeMillis();
+                taskStart[1] = SystemClock.currentThreadTimeMillis();
+            }
+
             @Override
             protected void afterExecute(Runnable r, Throwable t) {
-                cancellables.remove(r);
+                long[] taskStart = taskStartTL.get();
+                onTaskExecuted(
+                        SystemClock.uptimeMillis() - taskStart[0],
+                        SystemClock.currentThreadTimeMillis() - taskStart[1]);
             }
         };
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
     }
 
+    @Override
     public void setCapacity(int capacity) {
         this.capacity = capacity;
     }
 
-    public void submit(Runnable runnable) {
-        Runnable futureTask = (Runnable) threadPoolExecutor.submit(runnable);
-        if (runnable instanceof Cancellable)
-            cancellables.put(futureTask, (Cancellable) runnable);
+    @Override
+    public void submit(Runnable runnable, int priority, float cost) {
+        threadPoolExecutor.execute(new RenderTask(runnable, priority, cost, nextSequence++));
+        adjustThreads();
     }
 
+    @Override
+    public int getQueueSize() {
+        return workQueue.size();
+    }
+
+    @Override
     public void shutdownNow() {
         threadPoolExecutor.shutdownNow();
     }
 
+    private void onTaskExecuted(long wallTime, long cpuTime) {
+        // Thread CPU time has a millisecond resolution, so it's only
+        // meaningful summed over several tasks.
+        synchronized (this) {
+            windowWallTime += wallTime;
+            windowCpuTime += Math.min(cpuTime, wallTime);
+            if (windowWallTime >= SAMPLING_WINDOW_MS) {
+                cpuRatio = windowCpuTime / (float) windowWallTime;
+                windowWallTime = 0;
+                windowCpuTime = 0;
+            }
+        }
+        adjustThreads();
+    }
+
+    /**
+     * Sets the number of threads to what the measured
+     * rendering cost and the pending tasks need.
+     */
+    private void adjustThreads() {
+        int nbTasks = workQueue.size() + threadPoolExecutor.getActiveCount();
+        int nbThreads = Math.max(1, Math.min(getTargetThreads(), nbTasks));
+        if (nbThreads != threadPoolExecutor.getCorePoolSize() && !threadPoolExecutor.isShutdown()) {
+            threadPoolExecutor.setCorePoolSize(nbThreads);
+        }
+    }
+
+    /**
+     * @return The best number of threads for the measured rendering cost, if there's enough to do.
+     */
+    private int getTargetThreads() {
+        int nbThreads = (int) Math.ceil(nbRenderingCores / Math.max(cpuRatio, MIN_CPU_RATIO));
+        return Math.max(minThreads, Math.min(maxThreads, nbThreads));
+    }
+
     public interface Cancellable {
         void cancel();
     }
@@ -0,0 +1,36 @@
+package com.joanzapata.tilesview.internal;
+
+/**
+ * Runs the rendering tasks of a single TilePool.
+ */
+public interface RenderExecutor {
+
+    /** Tiles requested by a draw */
+    int PRIORITY_NORMAL = 0;
+
+    /** Tiles needed before the others, like the placeholder or the destination of an animation */
+    int PRIORITY_HIGH = 1;
+
+    /**
+     * Sets the maximum number of tasks waiting to be executed, the
+     * oldest tasks are dropped when this capacity is reached.
+     */
+    void setCapacity(int capacity);
+
+    /**
+     * Tasks with the highest priority run first, then the cheapest ones, then the most recent
+     * ones. When the capacity is reached the lowest priority, oldest tasks are dropped first.
+     * @param cost The estimated cost of the task, 0 if unknown.
+     */
+    void submit(Runnable runnable, int priority, float cost);
+
+    /**
+     * @return The number of tasks waiting to be executed.
+     */
+    int getQueueSize();
+
+    /**
+     * Drops waiting tasks and interrupts running ones. The executor can't be used anymore.
+     */
+    void shutdownNow();
+}
@@ -0,0 +1,72 @@
+package com.joanzapata.tilesview.internal;
+
+import com.joanzapata.tilesview.RenderStats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the rendering statistics of a TilePool, only created when they are enabled.
+ */
+public class RenderStatsRecorder {
+
+    private final AtomicLong tileRequests = new AtomicLong();
+    private final AtomicLong tileHits = new AtomicLong();
+    private final AtomicLong renderedTiles = new AtomicLong();
+    private final AtomicLong evictedTiles = new AtomicLong();
+    private final AtomicLong cancelledTiles = new AtomicLong();
+    private final AtomicLong wastedRenders = new AtomicLong();
+    private final AtomicLongArray queueWaitHistogram = new AtomicLongArray(RenderStats.NB_HISTOGRAM_BUCKETS);
+    private final AtomicLongArray renderTimeHistogram = new AtomicLongArray(RenderStats.NB_HISTOGRAM_BUCKETS);
+
+    void onTileRequested(boolean hit) {
+        tileRequests.incrementAndGet();
+        if (hit) tileHits.incrementAndGet();
+    }
+
+    void onTileRendered() {
+        renderedTiles.incrementAndGet();
+    }
+
+    void onTileEvicted() {
+        evictedTiles.incrementAndGet();
+    }
+
+    void onTileCancelled() {
+        cancelledTiles.incrementAndGet();
+    }
+
+    void onRenderWasted() {
+        wastedRenders.incrementAndGet();
+    }
+
+    void recordQueueWait(long nanos) {
+        queueWaitHistogram.incrementAndGet(getBucket(nanos));
+    }
+
+    void recordRenderTime(long nanos) {
+        renderTimeHistogram.incrementAndGet(getBucket(nanos));
+    }
+
+    private static int getBucket(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(Math.max(bucket, 0), RenderStats.NB_HISTOGRAM_BUCKETS - 1);
+    }
+
+    public RenderStats snapshot() {
+        return new RenderStats(
+                tileRequests.get(), tileHits.get(),
+                renderedTiles.get(), evictedTiles.get(),
+                cancelledTiles.get(), wastedRenders.get(),
+                toArray(queueWaitHistogram), toArray(renderTimeHistogram));
+    }
+
+    private static long[] toArray(AtomicLongArray histogram) {
+        long[] array = new long[histogram.length()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = histogram.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,66 @@
+package com.joanzapata.tilesview.internal;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A task waiting in a {@link RenderExecutor}, ordered by priority,
+ * then by cost, then most recent first.
+ */
+class RenderTask extends FutureTask<Void> implements Comparable<RenderTask> {
+
+    final Runnable runnable;
+
+    final int priority;
+
+    /** Base 2 logarithm of the cost, so that tasks of similar cost stay in LIFO order */
+    final int costClass;
+
+    final long sequence;
+
+    RenderTask(Runnable runnable, int priority, float cost, long sequence) {
+        super(runnable, null);
+        this.runnable = runnable;
+        this.priority = priority;
+        this.costClass = cost > 1f ? Math.getExponent(cost) + 1 : 0;
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return True if the task can be dropped from the queue, in which case it's cancelled.
+     */
+    boolean isDroppable() {
+        return runnable instanceof LIFOExecutor.Cancellable;
+    }
+
+    void drop() {
+        ((LIFOExecutor.Cancellable) runnable).cancel();
+    }
+
+    @Override
+    public int compareTo(RenderTask other) {
+        if (priority != other.priority) return priority > other.priority ? -1 : 1;
+        if (costClass != other.costClass) return costClass < other.costClass ? -1 : 1;
+        if (sequence != other.sequence) return sequence > other.sequence ? -1 : 1;
+        return 0;
+    }
+
+    /**
+     * @return The task that should be dropped first from the given tasks, or null if none can be.
+     */
+    static RenderTask findTaskToDrop(Collection<? extends Runnable> tasks) {
+        RenderTask taskToDrop = null;
+        Iterator<? extends Runnable> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            Runnable runnable = iterator.next();
+            if (!(runnable instanceof RenderTask)) continue;
+            RenderTask task = (RenderTask) runnable;
+            if (task.isDroppable() && (taskToDrop == null || task.priority < taskToDrop.priority
+                    || task.priority == taskToDrop.priority && task.sequence < taskToDrop.sequence)) {
+                taskToDrop = task;
+            }
+        }
+        return taskToDrop;
+    }
+}
@@ -0,0 +1,40 @@
+package com.joanzapata.tilesview.internal;
+
+import com.joanzapata.tilesview.CancellationToken;
+
+/**
+ * Keeps track of the tile currently rendered on each thread.
+ */
+public final class RenderingContext {
+
+    private static final CancellationToken NEVER_CANCELLED = new CancellationToken() {
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    private static final ThreadLocal<CancellationToken> cancellationTokenTL = new ThreadLocal<CancellationToken>();
+
+    private RenderingContext() {
+    }
+
+    /**
+     * @return The token of the tile rendered on the current thread, never null.
+     */
+    public static CancellationToken getCancellationToken() {
+        CancellationToken cancellationToken = cancellationTokenTL.get();
+        return cancellationToken != null ? cancellationToken : NEVER_CANCELLED;
+    }
+
+    /**
+     * @param cancellationToken The token of the tile about to be rendered on the current thread, or null when done.
+     */
+    public static void setCancellationToken(CancellationToken cancellationToken) {
+        if (cancellationToken == null) {
+            cancellationTokenTL.remove();
+        } else {
+            cancellationTokenTL.set(cancellationToken);
+        }
+    }
+}
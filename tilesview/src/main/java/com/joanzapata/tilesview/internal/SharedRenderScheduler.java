@@ -0,0 +1,250 @@
+package com.joanzapata.tilesview.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A process-wide pool of rendering threads shared by several TilePools.
+ * <br>
+ * Each TilePool gets its own {@link Client}, with its own queue (see {@link RenderExecutor#submit})
+ * and capacity.
+ * Threads pick the next task from the client that was touched last if it is visible,
+ * then round-robin across visible clients, then across hidden clients.
+ */
+public class SharedRenderScheduler {
+
+    private static final long THREADS_KEEP_ALIVE = 30;
+
+    private static SharedRenderScheduler instance;
+
+    private final ThreadPoolExecutor threadPoolExecutor;
+
+    /** Posted once per submitted task, picks the best task available when executed */
+    private final Runnable runNextTask = new Runnable() {
+        @Override
+        public void run() {
+            runNextTask();
+        }
+    };
+
+    private final List<Client> clients;
+
+    private Client focusedClient;
+
+    private int nextClientIndex;
+
+    /**
+     * Number of times a thread found pending tasks but none it could run,
+     * because their clients already used all their concurrent tasks.
+     */
+    private int missedTasks;
+
+    public static synchronized SharedRenderScheduler getInstance() {
+        if (instance == null) {
+            instance = new SharedRenderScheduler(Runtime.getRuntime().availableProcessors());
+        }
+        return instance;
+    }
+
+    private SharedRenderScheduler(int nbThreads) {
+        clients = new ArrayList<Client>();
+        threadPoolExecutor = new ThreadPoolExecutor(nbThreads, nbThreads,
+                THREADS_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "TilesView-shared");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param maxConcurrentTasks The maximum number of tasks of this client running at the same time,
+     *                           1 for adapters which are not thread safe.
+     */
+    public synchronized Client newClient(int maxConcurrentTasks) {
+        Client client = new Client(maxConcurrentTasks);
+        clients.add(client);
+        return client;
+    }
+
+    private void runNextTask() {
+        Client client;
+        RenderTask task;
+        Thread currentThread = Thread.currentThread();
+        synchronized (this) {
+            client = pickClient();
+            if (client == null) {
+                if (hasQueuedTasks()) missedTasks++;
+                return;
+            }
+            task = client.tasks.poll();
+            client.runningThreads.add(currentThread);
+        }
+
+        try {
+            task.run();
+        } finally {
+            boolean retryMissedTask = false;
+            synchronized (this) {
+                client.runningThreads.remove(currentThread);
+                if (missedTasks > 0) {
+                    missedTasks--;
+                    retryMissedTask = true;
+                }
+            }
+
+            // Don't leak an interruption from Client.shutdownNow() to the next task
+            Thread.interrupted();
+
+            // A task skipped because its client was busy may be able to run now
+            if (retryMissedTask) {
+                threadPoolExecutor.execute(runNextTask);
+            }
+        }
+    }
+
+    /** Must be called while holding the lock */
+    private Client pickClient() {
+        if (focusedClient != null && focusedClient.visible && focusedClient.canRun()) {
+            return focusedClient;
+        }
+        Client client = pickClient(true);
+        return client != null ? client : pickClient(false);
+    }
+
+    /** Must be called while holding the lock */
+    private Client pickClient(boolean visible) {
+        int nbClients = clients.size();
+        for (int i = 0; i < nbClients; i++) {
+            int index = (nextClientIndex + i) % nbClients;
+            Client client = clients.get(index);
+            if (client.visible == visible && client.canRun()) {
+                nextClientIndex = (index + 1) % nbClients;
+                return client;
+            }
+        }
+        return null;
+    }
+
+    /** Must be called while holding the lock */
+    private boolean hasQueuedTasks() {
+        for (int i = 0, size = clients.size(); i < size; i++) {
+            if (!clients.get(i).tasks.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The queue of a single TilePool on the shared scheduler.
+     */
+    public class Client implements RenderExecutor {
+
+        private final PriorityQueue<RenderTask> tasks;
+
+        private final List<Thread> runningThreads;
+
+        private final int maxConcurrentTasks;
+
+        private int capacity;
+
+        private long nextSequence;
+
+        private boolean visible;
+
+        private Client(int maxConcurrentTasks) {
+            this.tasks = new PriorityQueue<RenderTask>();
+            this.runningThreads = new ArrayList<Thread>();
+            this.maxConcurrentTasks = maxConcurrentTasks;
+            this.capacity = 1;
+            this.visible = true;
+        }
+
+        @Override
+        public void setCapacity(int capacity) {
+            synchronized (SharedRenderScheduler.this) {
+                this.capacity = capacity;
+            }
+        }
+
+        @Override
+        public void submit(Runnable runnable, int priority, float cost) {
+            List<RenderTask> evicted = null;
+            synchronized (SharedRenderScheduler.this) {
+                if (!clients.contains(this)) return;
+
+                // Drop the lowest priority, oldest tasks if the capacity is reached
+                while (tasks.size() >= capacity) {
+                    RenderTask taskToDrop = RenderTask.findTaskToDrop(tasks);
+                    if (taskToDrop == null) break;
+                    tasks.remove(taskToDrop);
+                    if (evicted == null) evicted = new ArrayList<RenderTask>();
+                    evicted.add(taskToDrop);
+                }
+                tasks.offer(new RenderTask(runnable, priority, cost, nextSequence++));
+            }
+
+            if (evicted != null) {
+                for (int i = 0, size = evicted.size(); i < size; i++) {
+                    evicted.get(i).drop();
+                }
+            }
+
+            threadPoolExecutor.execute(runNextTask);
+        }
+
+        /**
+         * Gives the priority to this client, for example because the user
+         * is currently touching its view.
+         */
+        public void focus() {
+            synchronized (SharedRenderScheduler.this) {
+                if (clients.contains(this)) {
+                    focusedClient = this;
+                }
+            }
+        }
+
+        /**
+         * Hidden clients are only served when no visible client has pending tasks.
+         */
+        public void setVisible(boolean visible) {
+            synchronized (SharedRenderScheduler.this) {
+                this.visible = visible;
+            }
+        }
+
+        @Override
+        public int getQueueSize() {
+            synchronized (SharedRenderScheduler.this) {
+                return tasks.size();
+            }
+        }
+
+        @Override
+        public void shutdownNow() {
+            synchronized (SharedRenderScheduler.this) {
+                clients.remove(this);
+                if (focusedClient == this) focusedClient = null;
+                tasks.clear();
+                for (int i = 0, size = runningThreads.size(); i < size; i++) {
+                    runningThreads.get(i).interrupt();
+                }
+            }
+        }
+
+        /** Must be called while holding the lock */
+        private boolean canRun() {
+            return !tasks.isEmpty() && runningThreads.size() < maxConcurrentTasks;
+        }
+    }
+}
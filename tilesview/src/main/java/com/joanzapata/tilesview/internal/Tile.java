@@ -1,9 +1,24 @@
 package com.joanzapata.tilesview.internal;
 
 import android.graphics.Bitmap;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Tile {
 
+    /** Rendered by a rendering thread */
+    public static final int SOURCE_RENDERED = 0;
+
+    /** Rendered on the UI thread during a draw */
+    public static final int SOURCE_INLINE = 1;
+
+    /** Loaded by an asynchronous adapter */
+    public static final int SOURCE_ASYNC = 2;
+
+    /** Downsampled from the cached tiles of a finer zoom level */
+    public static final int SOURCE_DOWNSAMPLED = 3;
+
     private Bitmap bitmap;
 
     private final int xIndex, yIndex, zoomLevel;
@@ -22,6 +37,25 @@ public class Tile {
 
     private volatile boolean deleted;
 
+    /**
+     * The asynchronous request currently loading this
+     * tile, cancelled as soon as the tile is deleted.
+     */
+    private volatile LIFOExecutor.Cancellable pendingRequest;
+
+    /**
+     * The task rendering this tile, cancelled as soon as the tile is deleted.
+     * A task rendering the tile again gets a new flag, the old one stays cancelled.
+     */
+    private volatile OnDeletedListener renderingTask;
+
+    /** Number of tasks reading the bitmap, which must not be reused meanwhile */
+    private final AtomicInteger pins = new AtomicInteger();
+
+    /** How the current bitmap was made, only used for debugging */
+    private volatile int source;
+    private volatile long renderDuration, renderUptime;
+
     public int getxIndex() {
         return xIndex;
     }
@@ -40,6 +74,69 @@ public class Tile {
 
     public void setDeleted(boolean deleted) {
         this.deleted = deleted;
+        if (deleted) {
+            OnDeletedListener task = renderingTask;
+            if (task != null) {
+                renderingTask = null;
+                task.onTileDeleted();
+            }
+            LIFOExecutor.Cancellable request = pendingRequest;
+            if (request != null) {
+                pendingRequest = null;
+                request.cancel();
+            }
+        }
+    }
+
+    public void setRenderingTask(OnDeletedListener renderingTask) {
+        this.renderingTask = renderingTask;
+    }
+
+    public void setPendingRequest(LIFOExecutor.Cancellable pendingRequest) {
+        this.pendingRequest = pendingRequest;
+    }
+
+    public void clearPendingRequest(LIFOExecutor.Cancellable request) {
+        if (pendingRequest == request) {
+            pendingRequest = null;
+        }
+    }
+
+    public void pin() {
+        pins.incrementAndGet();
+    }
+
+    public void unpin() {
+        pins.decrementAndGet();
+    }
+
+    public boolean isPinned() {
+        return pins.get() > 0;
+    }
+
+    /**
+     * @param source         One of the SOURCE_* constants.
+     * @param renderDuration The time it took to render in nanoseconds.
+     */
+    public void setRenderInfo(int source, long renderDuration) {
+        this.source = source;
+        this.renderDuration = renderDuration;
+        this.renderUptime = SystemClock.uptimeMillis();
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public long getRenderDuration() {
+        return renderDuration;
+    }
+
+    /**
+     * @return The {@link SystemClock#uptimeMillis()} when the bitmap was rendered.
+     */
+    public long getRenderUptime() {
+        return renderUptime;
     }
 
     public void setBitmap(Bitmap bitmap) {
@@ -65,6 +162,18 @@ public class Tile {
         return this;
     }
 
+    /**
+     * Removes this tile from anywhere in the LRU list.
+     */
+    public void remove() {
+        if (newerTile != null)
+            newerTile.olderTile = olderTile;
+        if (olderTile != null)
+            olderTile.newerTile = newerTile;
+        newerTile = null;
+        olderTile = null;
+    }
+
     public Tile removeAndGetNewLRU() {
         Tile newLRU = newerTile;
         newerTile.olderTile = null;
@@ -79,4 +188,8 @@ public class Tile {
     public Tile getOlderTile() {
         return olderTile;
     }
+
+    public interface OnDeletedListener {
+        void onTileDeleted();
+    }
 }
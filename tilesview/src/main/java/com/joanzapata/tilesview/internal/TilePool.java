@@ -2,9 +2,30 @@ package com.joanzapata.tilesview.internal;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Build;
 import android.util.SparseArray;
 
+import com.joanzapata.tilesview.AsyncTilesViewAdapter;
+import com.joanzapata.tilesview.CancellationToken;
+import com.joanzapata.tilesview.MemoryUsage;
+import com.joanzapata.tilesview.RenderStats;
+import com.joanzapata.tilesview.TileCostEstimator;
+import com.joanzapata.tilesview.TileRequest;
 import com.joanzapata.tilesview.TilesViewAdapter;
+import com.joanzapata.tilesview.TilesViewAdapterFactory;
+import com.joanzapata.tilesview.Tracer;
+import com.joanzapata.tilesview.tracer.NoOpTracer;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.joanzapata.tilesview.TilesView.TILE_SIZE;
 
@@ -12,8 +33,52 @@ public class TilePool {
 
     private static final float PLACEHOLDER_RATIO = 1f;
 
+    /** Drops the tiles of other zoom levels, and the tiles more than one tile away from the screen */
+    public static final int TRIM_OFFSCREEN_TILES = 1;
+
+    /** Also releases the evicted bitmaps kept by the queued tasks to reuse them */
+    public static final int TRIM_POOLED_BITMAPS = 2;
+
+    /** Only keeps the tiles on screen */
+    public static final int TRIM_ALL_BUT_VISIBLE = 3;
+
+    /** Upper bound of rendering threads for thread safe adapters, used if rendering mostly waits */
+    private static final int MAX_THREADS_PER_CORE = 2;
+
+    /** Estimated sizes of objects and arrays, for the memory usage */
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int TILE_BYTES = 64;
+    private static final int TASK_BYTES = 96;
+
+    private static final Paint ASYNC_CONTENT_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private static final Paint DOWNSAMPLING_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+
     /** Thread pool executor which will render everything */
-    private LIFOExecutor executor;
+    private RenderExecutor executor;
+
+    /** Use the process-wide SharedRenderScheduler instead of a dedicated executor */
+    private boolean useSharedExecutor;
+
+    /** Number of rendering threads for thread safe adapters, 0 to adjust it automatically */
+    private int renderingThreads;
+
+    private boolean visible = true;
+
+    /** True if the adapter can draw on the calling thread while the executor renders other tiles */
+    private boolean inlineRenderingSupported;
+
+    /** Missing tiles are rendered by getTile() until this System.nanoTime(), 0 if disabled */
+    private long inlineRenderingDeadline;
+
+    /** Average time of the tiles rendered by getTile() */
+    private long inlineRenderingAverageTime;
+
+    /** Number of tiles sent to rendering since the creation of this pool */
+    private int requestedTiles;
+
+    /** Number of tiles rendered since the creation of this pool */
+    private final AtomicInteger publishedTiles = new AtomicInteger();
 
     /** Callback for rendered tiles */
     private TilePoolListener tilePoolListener;
@@ -24,21 +89,63 @@ public class TilePool {
 
     private Tile tileMRU, tileLRU;
 
-    private int nbTiles, nbMaxTiles;
+    private int nbTiles;
+
+    /**
+     * Total weight of the tiles in the pool, and its maximum. Each tile weighs
+     * its number of pixels relative to a tile of TILE_SIZE, see getTileWeight().
+     */
+    private int tilesWeight, maxTilesWeight;
+
+    /** Zoom levels below this one use tiles of largeTileSize, 0 if disabled */
+    private volatile int largeTilesZoomLevel;
+    private volatile int largeTileSize;
+
+    private volatile Runnable placeholderRunnable;
 
-    private Runnable placeholderRunnable;
+    private volatile Bitmap placeholder;
 
-    private Bitmap placeholder;
+    /** Pending placeholder request when the adapter is asynchronous */
+    private volatile PlaceholderRequest placeholderRequest;
 
     private int maxTasks;
 
     private TilesViewAdapter adapter;
 
+    /** Adapters used by the rendering threads */
+    private volatile RenderingAdapters renderingAdapters;
+
+    /**
+     * Incremented each time all tiles are dropped. Rendering tasks are stamped
+     * with the generation they were created in, and are discarded as soon as
+     * it's not the current one anymore.
+     */
+    private volatile int generation;
+
+    /**
+     * Bytes of the evicted tiles bitmaps kept by the tasks waiting to reuse them.
+     * Replaced when the executor is, as its tasks may be dropped without running.
+     */
+    private volatile AtomicLong queuedBitmapBytes = new AtomicLong();
+
+    /** The tasks counted in queuedBitmapBytes, replaced along with it */
+    private volatile Set<TileRenderingTask> queuedBitmapTasks = newQueuedBitmapTasks();
+
+    private volatile Tracer tracer = NoOpTracer.INSTANCE;
+
+    private volatile boolean mipMapTiles;
+
+    /** Build new tiles from the cached tiles of a finer zoom level when possible */
+    private boolean downsampleCachedTiles;
+
+    /** Null unless the statistics are enabled */
+    private volatile RenderStatsRecorder statsRecorder;
+
     public TilePool(TilePoolListener tilePoolListener) {
         this.tilePoolListener = tilePoolListener;
         this.tilesByZoomLevel = new SparseArray<Tile[][]>();
         this.maxTasks = 1;
-        this.nbMaxTiles = 100;
+        this.maxTilesWeight = 100;
         this.nbTiles = 0;
     }
 
@@ -47,6 +154,24 @@ public class TilePool {
     }
 
     public Bitmap getTile(final int zoomLevel, final int xIndex, final int yIndex, final float contentWidth, final float contentHeight) {
+        Tracer tracer = this.tracer;
+        tracer.beginStage(Tracer.STAGE_GET_TILE, zoomLevel, xIndex, yIndex);
+        try {
+            return getTile(zoomLevel, xIndex, yIndex, contentWidth, contentHeight, RenderExecutor.PRIORITY_NORMAL);
+        } finally {
+            tracer.endStage(Tracer.STAGE_GET_TILE);
+        }
+    }
+
+    /**
+     * Requests the rendering of a tile which is not drawn yet, but will be soon,
+     * before the tiles requested by the draws.
+     */
+    public void prefetchTile(int zoomLevel, int xIndex, int yIndex, float contentWidth, float contentHeight) {
+        getTile(zoomLevel, xIndex, yIndex, contentWidth, contentHeight, RenderExecutor.PRIORITY_HIGH);
+    }
+
+    private Bitmap getTile(int zoomLevel, int xIndex, int yIndex, float contentWidth, float contentHeight, int priority) {
 
         // Don't try to render anything if there's no tile renderer
         if (adapter == null) return null;
@@ -54,8 +179,9 @@ public class TilePool {
         // Get the tiles array for the given zoom (or create it)
         Tile[][] tiles = tilesByZoomLevel.get(zoomLevel);
         if (tiles == null) {
-            int xCells = (int) Math.ceil(contentWidth * (zoomLevel / 10f) / TILE_SIZE);
-            int yCells = (int) Math.ceil(contentHeight * (zoomLevel / 10f) / TILE_SIZE);
+            int tileSize = getTileSize(zoomLevel);
+            int xCells = (int) Math.ceil(contentWidth * (zoomLevel / 10f) / tileSize);
+            int yCells = (int) Math.ceil(contentHeight * (zoomLevel / 10f) / tileSize);
             tiles = new Tile[xCells][yCells];
             tilesByZoomLevel.put(zoomLevel, tiles);
         }
@@ -66,40 +192,58 @@ public class TilePool {
 
         // Get it
         Tile tile = tiles[xIndex][yIndex];
+        RenderStatsRecorder stats = statsRecorder;
+        if (stats != null && priority == RenderExecutor.PRIORITY_NORMAL) {
+            stats.onTileRequested(tile != null && !tile.isDeleted() && tile.getBitmap() != null);
+        }
 
         // If null request a rendering
         if (tile == null) {
 
             tile = new Tile(xIndex, yIndex, zoomLevel);
+            int tileSize = getTileSize(zoomLevel);
+            int tileWeight = getTileWeight(zoomLevel);
             Bitmap existingBitmap = null;
+            while (tileLRU != null && tilesWeight + tileWeight > maxTilesWeight) {
+                Bitmap evictedBitmap = evictLRU();
+                if (evictedBitmap != null && evictedBitmap.getWidth() == tileSize) {
+                    existingBitmap = evictedBitmap;
+                }
+                if (stats != null) stats.onTileEvicted();
+            }
             if (tileLRU == null) {
                 tileLRU = tile;
                 tileMRU = tile;
-            } else if (nbTiles == nbMaxTiles) {
-                tileLRU.setDeleted(true);
-                existingBitmap = tileLRU.getBitmap();
-                tilesByZoomLevel.get(tileLRU.getZoomLevel())[tileLRU.getxIndex()][tileLRU.getyIndex()] = null;
-                tileLRU = tileLRU.removeAndGetNewLRU();
-                nbTiles--;
             }
 
             nbTiles++;
+            tilesWeight += tileWeight;
 
             tiles[xIndex][yIndex] = tile;
-            executor.submit(new TileRenderingTask(tile,
+            requestedTiles++;
+            TileRenderingTask task = new TileRenderingTask(tile,
                     xIndex, yIndex, zoomLevel,
                     contentWidth, contentHeight,
-                    existingBitmap));
+                    existingBitmap);
+            if (downsampleCachedTiles) task.setChildTiles(findChildTiles(zoomLevel, xIndex, yIndex));
+            if (priority != RenderExecutor.PRIORITY_NORMAL || !renderInline(task)) {
+                submit(task, priority);
+            }
 
         } else if (tile.isDeleted()) {
             // Can happen from TileRenderingTask if evicted before ran
 
             tile.setDeleted(false);
+            requestedTiles++;
 
-            executor.submit(new TileRenderingTask(tile,
+            TileRenderingTask task = new TileRenderingTask(tile,
                     xIndex, yIndex, zoomLevel,
                     contentWidth, contentHeight,
-                    null));
+                    null);
+            if (downsampleCachedTiles) task.setChildTiles(findChildTiles(zoomLevel, xIndex, yIndex));
+            if (priority != RenderExecutor.PRIORITY_NORMAL || !renderInline(task)) {
+                submit(task, priority);
+            }
 
         }
 
@@ -114,6 +258,254 @@ public class TilePool {
         return tile.getBitmap();
     }
 
+    /**
+     * Removes the least recently used tile from the pool.
+     * @return Its bitmap if it can be reused, or null.
+     */
+    private Bitmap evictLRU() {
+        Tile tile = tileLRU;
+        removeTile(tile);
+
+        // A pinned bitmap is still read to build a coarser tile
+        return tile.isPinned() ? null : tile.getBitmap();
+    }
+
+    /**
+     * @return The cached tiles of the nearest finer zoom level, at most twice as fine,
+     * which entirely cover the given tile, or null if there are none.
+     */
+    private Tile[] findChildTiles(int zoomLevel, int xIndex, int yIndex) {
+        // Zoom levels are sorted, the first complete one is the nearest
+        for (int i = 0, size = tilesByZoomLevel.size(); i < size; i++) {
+            int childZoomLevel = tilesByZoomLevel.keyAt(i);
+            if (childZoomLevel <= zoomLevel) continue;
+            if (childZoomLevel > zoomLevel * 2) break;
+            Tile[] childTiles = getChildTiles(tilesByZoomLevel.valueAt(i),
+                    childZoomLevel, getTileSize(childZoomLevel),
+                    zoomLevel, getTileSize(zoomLevel), xIndex, yIndex);
+            if (childTiles != null) return childTiles;
+        }
+        return null;
+    }
+
+    /**
+     * @return The tiles of the given grid covering the given tile of a coarser
+     * zoom level, or null if some of them are not rendered.
+     */
+    private static Tile[] getChildTiles(Tile[][] grid, int childZoomLevel, int childTileSize,
+                                        int zoomLevel, int tileSize, int xIndex, int yIndex) {
+        if (grid.length == 0) return null;
+        long ratioNumerator = (long) childZoomLevel * tileSize;
+        long ratioDenominator = (long) zoomLevel * childTileSize;
+        int xStart = (int) (xIndex * ratioNumerator / ratioDenominator);
+        int yStart = (int) (yIndex * ratioNumerator / ratioDenominator);
+        int xStop = (int) Math.min(((xIndex + 1) * ratioNumerator - 1) / ratioDenominator, grid.length - 1);
+        int yStop = (int) Math.min(((yIndex + 1) * ratioNumerator - 1) / ratioDenominator, grid[0].length - 1);
+        if (xStart > xStop || yStart > yStop) return null;
+
+        Tile[] childTiles = new Tile[(xStop - xStart + 1) * (yStop - yStart + 1)];
+        int i = 0;
+        for (int x = xStart; x <= xStop; x++) {
+            for (int y = yStart; y <= yStop; y++) {
+                Tile childTile = grid[x][y];
+                if (childTile == null || childTile.isDeleted() || childTile.getBitmap() == null) return null;
+                childTiles[i++] = childTile;
+            }
+        }
+        return childTiles;
+    }
+
+    private void submit(TileRenderingTask task, int priority) {
+        tracer.beginStage(Tracer.STAGE_ENQUEUE, task.zoomLevel, task.xIndex, task.yIndex);
+        try {
+            executor.submit(task, priority, task.estimateCost(adapter));
+        } finally {
+            tracer.endStage(Tracer.STAGE_ENQUEUE);
+        }
+    }
+
+    /**
+     * Renders the task on the calling thread if there's enough time left before the deadline.
+     * @return True if rendered.
+     */
+    private boolean renderInline(TileRenderingTask task) {
+        if (!inlineRenderingSupported || inlineRenderingDeadline == 0) return false;
+        long start = System.nanoTime();
+        if (start + inlineRenderingAverageTime > inlineRenderingDeadline) return false;
+
+        task.inline = true;
+        task.run();
+
+        long duration = System.nanoTime() - start;
+        inlineRenderingAverageTime = inlineRenderingAverageTime == 0 ? duration :
+                (inlineRenderingAverageTime * 3 + duration) / 4;
+        return true;
+    }
+
+    /**
+     * Until the given deadline, tiles requested with {@link #getTile(int, int, int, float, float)}
+     * are rendered right away on the calling thread instead of the executor, if the adapter
+     * supports it. Tiles which wouldn't fit in the remaining time are still sent to the executor.
+     * @param deadline A {@link System#nanoTime()} value, or 0 to render everything on the executor.
+     */
+    public void setInlineRenderingDeadline(long deadline) {
+        this.inlineRenderingDeadline = deadline;
+    }
+
+    /**
+     * @return The number of tiles sent to rendering since the creation of this pool.
+     */
+    public int getRequestedTiles() {
+        return requestedTiles;
+    }
+
+    /**
+     * @return The number of tiles rendered since the creation of this pool.
+     */
+    public int getPublishedTiles() {
+        return publishedTiles.get();
+    }
+
+    /**
+     * @return The number of tasks waiting to be rendered.
+     */
+    public int getQueueSize() {
+        return executor != null ? executor.getQueueSize() : 0;
+    }
+
+    /**
+     * @return The memory used by the bitmaps of the tiles and the placeholder.
+     */
+    public long getCacheSizeInBytes() {
+        long size = 0;
+        Tile tile = tileMRU;
+        while (tile != null) {
+            size += getSizeInBytes(tile.getBitmap());
+            tile = tile.getOlderTile();
+        }
+        return size + getSizeInBytes(placeholder);
+    }
+
+    /**
+     * Applies to the tiles requested from now on.
+     * @param tracer The tracer, or null to stop tracing.
+     */
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer != null ? tracer : NoOpTracer.INSTANCE;
+    }
+
+    /**
+     * Applies to the level 10 tiles rendered from now on, so that the GPU builds
+     * a mip chain to downscale them smoothly. Ignored before API 17.
+     */
+    public void setMipMapTiles(boolean mipMapTiles) {
+        this.mipMapTiles = mipMapTiles;
+    }
+
+    /**
+     * Drops all tiles, and renders the zoom levels below the given
+     * one with bigger tiles from now on.
+     * @param tileSize A multiple of TILE_SIZE.
+     */
+    public void setLargeTiles(int belowZoomLevel, int tileSize) {
+        this.largeTilesZoomLevel = belowZoomLevel;
+        this.largeTileSize = tileSize;
+        reset();
+    }
+
+    /**
+     * Can be called from any thread.
+     * @return The size in pixels of the tiles of the given zoom level.
+     */
+    public int getTileSize(int zoomLevel) {
+        return zoomLevel < largeTilesZoomLevel ? largeTileSize : TILE_SIZE;
+    }
+
+    /**
+     * @return The number of pixels of the tiles of the given zoom level,
+     * relative to a tile of TILE_SIZE.
+     */
+    private int getTileWeight(int zoomLevel) {
+        int ratio = getTileSize(zoomLevel) / TILE_SIZE;
+        return ratio * ratio;
+    }
+
+    /**
+     * Builds the tiles requested from now on by downsampling the cached tiles of a finer
+     * zoom level, when they cover them entirely, instead of asking the adapter to draw them.
+     */
+    public void setDownsampleCachedTiles(boolean downsampleCachedTiles) {
+        this.downsampleCachedTiles = downsampleCachedTiles;
+    }
+
+    /**
+     * Must be called on the UI thread.
+     * @return The memory held by this pool, by category and zoom level.
+     */
+    public MemoryUsage getMemoryUsage() {
+        int nbZoomLevels = tilesByZoomLevel.size();
+        int[] zoomLevels = new int[nbZoomLevels];
+        long[] tileBitmapBytes = new long[nbZoomLevels];
+        long[] tileGridBytes = new long[nbZoomLevels];
+        for (int i = 0; i < nbZoomLevels; i++) {
+            zoomLevels[i] = tilesByZoomLevel.keyAt(i);
+            Tile[][] tiles = tilesByZoomLevel.valueAt(i);
+            int columnBytes = ARRAY_HEADER_BYTES + REFERENCE_BYTES * (tiles.length > 0 ? tiles[0].length : 0);
+            tileGridBytes[i] = ARRAY_HEADER_BYTES + (long) (REFERENCE_BYTES + columnBytes) * tiles.length;
+        }
+
+        Tile tile = tileMRU;
+        while (tile != null) {
+            for (int i = 0; i < nbZoomLevels; i++) {
+                if (zoomLevels[i] == tile.getZoomLevel()) {
+                    tileBitmapBytes[i] += getSizeInBytes(tile.getBitmap());
+                    tileGridBytes[i] += TILE_BYTES;
+                    break;
+                }
+            }
+            tile = tile.getOlderTile();
+        }
+
+        long queuedTaskBytes = (long) getQueueSize() * TASK_BYTES + Math.max(0, queuedBitmapBytes.get());
+        return new MemoryUsage(zoomLevels, tileBitmapBytes, tileGridBytes,
+                getSizeInBytes(placeholder), queuedTaskBytes);
+    }
+
+    private static long getSizeInBytes(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return 0;
+        return (long) bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * @return The tile at the given position if it exists, without requesting it.
+     */
+    public Tile peekTile(int zoomLevel, int xIndex, int yIndex) {
+        Tile[][] tiles = tilesByZoomLevel.get(zoomLevel);
+        if (tiles == null || xIndex < 0 || yIndex < 0 || xIndex >= tiles.length || yIndex >= tiles[0].length)
+            return null;
+        return tiles[xIndex][yIndex];
+    }
+
+    /**
+     * Starts or stops collecting statistics. When disabled,
+     * the rendering doesn't pay for them.
+     */
+    public void setStatsEnabled(boolean enabled) {
+        if (!enabled) {
+            statsRecorder = null;
+        } else if (statsRecorder == null) {
+            statsRecorder = new RenderStatsRecorder();
+        }
+    }
+
+    /**
+     * @return The statistics collected since they were enabled, or null if disabled.
+     */
+    public RenderStats getStats() {
+        RenderStatsRecorder stats = statsRecorder;
+        return stats != null ? stats.snapshot() : null;
+    }
+
     public Bitmap getPlaceholder(final float contentWidth, final float contentHeight) {
         if (adapter == null || placeholderRunnable != null || contentWidth == 0 || contentHeight == 0)
             return null;
@@ -121,63 +513,225 @@ public class TilePool {
         if (placeholder != null)
             return placeholder;
 
-        placeholderRunnable = new Runnable() {
-            @Override
-            public void run() {
-                Bitmap bitmap = Bitmap.createBitmap(
-                        (int) (contentWidth * PLACEHOLDER_RATIO),
-                        (int) (contentHeight * PLACEHOLDER_RATIO),
-                        Bitmap.Config.RGB_565);
-                Canvas canvas = new Canvas(bitmap);
-                canvas.drawColor(tilesBackgroundColor);
-                adapter.drawTile(canvas,
-                        0f, 0f, 1f, 1f,
-                        contentWidth, contentHeight, 1f);
-                placeholder = bitmap;
-                placeholderRunnable = null;
-            }
-        };
-
-        executor.submit(placeholderRunnable);
+        Runnable runnable = new PlaceholderRenderingTask(contentWidth, contentHeight);
+        placeholderRunnable = runnable;
+        tracer.beginStage(Tracer.STAGE_ENQUEUE, -1, -1, -1);
+        executor.submit(runnable, RenderExecutor.PRIORITY_HIGH, 0f);
+        tracer.endStage(Tracer.STAGE_ENQUEUE);
         return placeholder;
     }
 
 
-    public void setAdapter(TilesViewAdapter tilesViewAdapter) {
+    /**
+     * @param tilesViewAdapter The adapter, or null to stop rendering.
+     * @param adapterFactory   If not null, each rendering thread uses its own adapter created by
+     *                         this factory, so tiles are rendered in parallel even if the adapter
+     *                         is not thread safe.
+     */
+    public void setAdapter(TilesViewAdapter tilesViewAdapter, TilesViewAdapterFactory adapterFactory) {
         clear();
         if (tilesViewAdapter != null) {
             int nbCores = Runtime.getRuntime().availableProcessors();
-            executor = new LIFOExecutor(tilesViewAdapter.isThreadSafe() ? nbCores : 1);
+            boolean parallel = tilesViewAdapter.isThreadSafe() || adapterFactory != null;
+            if (useSharedExecutor) {
+                int maxConcurrentTasks = !parallel ? 1 : renderingThreads > 0 ? renderingThreads : nbCores;
+                SharedRenderScheduler.Client client = SharedRenderScheduler.getInstance().newClient(maxConcurrentTasks);
+                client.setVisible(visible);
+                executor = client;
+            } else if (parallel && renderingThreads > 0) {
+                executor = new LIFOExecutor(renderingThreads);
+            } else {
+                // Adapters blocking on I/O may use more threads than cores
+                executor = parallel ? new LIFOExecutor(1, nbCores * MAX_THREADS_PER_CORE) : new LIFOExecutor(1);
+            }
             executor.setCapacity(maxTasks);
             adapter = tilesViewAdapter;
+            renderingAdapters = new RenderingAdapters(tilesViewAdapter, adapterFactory);
+            inlineRenderingSupported = parallel && !(tilesViewAdapter instanceof AsyncTilesViewAdapter);
+            inlineRenderingAverageTime = 0;
+        }
+    }
+
+    /**
+     * Only applies to the next adapter.
+     * @see SharedRenderScheduler
+     */
+    public void setUseSharedExecutor(boolean useSharedExecutor) {
+        this.useSharedExecutor = useSharedExecutor;
+    }
+
+    /**
+     * Only applies to the next adapter, and only if it renders in parallel.
+     * @param renderingThreads A fixed number of rendering threads, or 0 to adjust
+     *                         it to the measured rendering cost.
+     */
+    public void setRenderingThreads(int renderingThreads) {
+        this.renderingThreads = renderingThreads;
+    }
+
+    /**
+     * When using the shared executor, gives the priority to this pool
+     * over other pools, until another pool requests it.
+     */
+    public void requestPriority() {
+        if (executor instanceof SharedRenderScheduler.Client) {
+            ((SharedRenderScheduler.Client) executor).focus();
+        }
+    }
+
+    /**
+     * When using the shared executor, a pool which is not visible is
+     * only served when visible pools have nothing to render.
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+        if (executor instanceof SharedRenderScheduler.Client) {
+            ((SharedRenderScheduler.Client) executor).setVisible(visible);
         }
     }
 
     public void setMaxTasks(int maxTasks) {
+        setMaxTasks(maxTasks, maxTasks * 2);
+    }
+
+    /**
+     * @param maxTilesWeight The maximum weight of the cached tiles, see getTileWeight().
+     *                       It must hold at least the tiles on screen, which are requested
+     *                       again on each frame otherwise.
+     */
+    public void setMaxTasks(int maxTasks, int maxTilesWeight) {
         this.maxTasks = maxTasks;
-        this.nbMaxTiles = maxTasks * 2;
+        this.maxTilesWeight = maxTilesWeight;
         if (executor != null) executor.setCapacity(maxTasks);
     }
 
+    /**
+     * Cancels the tiles of other zoom levels which are not rendered yet, for example
+     * because the user zoomed through them. They are removed from the pool, so that
+     * their queued tasks are skipped and their async requests are cancelled.
+     * @param keptZoomLevel Another zoom level to keep, like the destination of an animation.
+     */
+    public void cancelPendingTiles(int zoomLevel, int keptZoomLevel) {
+        Tile tile = tileMRU;
+        while (tile != null) {
+            Tile olderTile = tile.getOlderTile();
+            if (tile.getZoomLevel() != zoomLevel && tile.getZoomLevel() != keptZoomLevel
+                    && tile.getBitmap() == null) {
+                removeTile(tile);
+            }
+            tile = olderTile;
+        }
+    }
+
+    /**
+     * Releases memory, for example when the system is running low. The tiles dropped are
+     * requested again when drawn. Must be called on the UI thread.
+     * @param tier One of the TRIM_* constants, each one releasing more than the previous one.
+     * @param zoomLevel The zoom level on screen, followed by the bounds of its tiles on screen.
+     */
+    public void trimMemory(int tier, int zoomLevel,
+                           int xIndexStart, int yIndexStart,
+                           int xIndexStop, int yIndexStop) {
+        int margin = tier >= TRIM_ALL_BUT_VISIBLE ? 0 : 1;
+        RenderStatsRecorder stats = statsRecorder;
+        Tile tile = tileMRU;
+        while (tile != null) {
+            Tile olderTile = tile.getOlderTile();
+            if (tile.getZoomLevel() != zoomLevel
+                    || tile.getxIndex() < xIndexStart - margin || tile.getxIndex() > xIndexStop + margin
+                    || tile.getyIndex() < yIndexStart - margin || tile.getyIndex() > yIndexStop + margin) {
+                removeTile(tile);
+                Bitmap bitmap = tile.getBitmap();
+                // A pinned bitmap is still read to build a coarser tile
+                if (bitmap != null && !tile.isPinned()) {
+                    tile.setBitmap(null);
+                    bitmap.recycle();
+                }
+                if (stats != null) stats.onTileEvicted();
+            }
+            tile = olderTile;
+        }
+
+        // The grids of other zoom levels are empty now
+        for (int i = tilesByZoomLevel.size() - 1; i >= 0; i--) {
+            if (tilesByZoomLevel.keyAt(i) != zoomLevel) {
+                tilesByZoomLevel.removeAt(i);
+            }
+        }
+
+        if (tier >= TRIM_POOLED_BITMAPS) {
+            Set<TileRenderingTask> tasks = queuedBitmapTasks;
+            TileRenderingTask[] tasksArray;
+            synchronized (tasks) {
+                tasksArray = tasks.toArray(new TileRenderingTask[tasks.size()]);
+            }
+            for (int i = 0; i < tasksArray.length; i++) {
+                tasksArray[i].dropExistingBitmap();
+            }
+        }
+
+        if (tier >= TRIM_ALL_BUT_VISIBLE) {
+            invalidatePlaceholder();
+        }
+    }
+
+    /**
+     * Removes the given tile from the grid and the LRU list, and cancels its rendering if pending.
+     */
+    private void removeTile(Tile tile) {
+        tile.setDeleted(true);
+        tilesByZoomLevel.get(tile.getZoomLevel())[tile.getxIndex()][tile.getyIndex()] = null;
+        if (tile == tileMRU) tileMRU = tile.getOlderTile();
+        if (tile == tileLRU) tileLRU = tile.getNewerTile();
+        tile.remove();
+        nbTiles--;
+        tilesWeight -= getTileWeight(tile.getZoomLevel());
+    }
+
+    private static Set<TileRenderingTask> newQueuedBitmapTasks() {
+        return Collections.synchronizedSet(new HashSet<TileRenderingTask>());
+    }
+
     public void clear() {
         adapter = null;
+        if (renderingAdapters != null) {
+            renderingAdapters.release();
+            renderingAdapters = null;
+        }
 
         // Stop existing executor service
         if (executor != null) {
             executor.shutdownNow();
             executor = null;
+            queuedBitmapBytes = new AtomicLong();
+            queuedBitmapTasks = newQueuedBitmapTasks();
         }
 
-        // Reset all tiles
+        reset();
+    }
+
+    /**
+     * Drops all tiles and the placeholder but keeps the adapter, for example because the
+     * content has been resized. Tasks of the previous generation, queued or running, are
+     * discarded before drawing anything.
+     */
+    public void reset() {
+        generation++;
+
+        // Reset all tiles, cancelling their pending requests if any
+        Tile tile = tileMRU;
+        while (tile != null) {
+            tile.setDeleted(true);
+            tile = tile.getOlderTile();
+        }
         tilesByZoomLevel.clear();
         nbTiles = 0;
+        tilesWeight = 0;
         tileLRU = null;
         tileMRU = null;
 
-        if (placeholder != null) {
-            placeholder.recycle();
-            placeholder = null;
-        }
+        placeholderRunnable = null;
+        invalidatePlaceholder();
     }
 
     public Tile[] getTiles() {
@@ -193,67 +747,664 @@ public class TilePool {
     }
 
     public void invalidatePlaceholder() {
+        PlaceholderRequest request = placeholderRequest;
+        if (request != null) {
+            request.cancel();
+        }
         if (placeholder != null) {
             placeholder.recycle();
             placeholder = null;
         }
     }
 
+    /**
+     * Only tiles of level 10 are drawn below scale 1, when zoomed out levels are drawn from them.
+     * The flag is always set because reused bitmaps keep the previous setting.
+     */
+    private void setTileBitmap(Tile tile, Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            bitmap.setHasMipMap(mipMapTiles && tile.getZoomLevel() == 10);
+        }
+        tile.setBitmap(bitmap);
+    }
+
+    /**
+     * @return False if the tile is not needed anymore, in which case the bitmap is recycled.
+     */
+    private boolean publishTile(Tile tile, Bitmap bitmap, int tileGeneration) {
+        setTileBitmap(tile, bitmap);
+
+        // Can happen from getTile() on main thread.
+        if (!tile.isDeleted() && tileGeneration == generation) {
+            publishedTiles.incrementAndGet();
+            tilePoolListener.onTileRendered(tile);
+            return true;
+
+        } else {
+            bitmap.recycle();
+            return false;
+        }
+    }
+
     public interface TilePoolListener {
         void onTileRendered(Tile tile);
     }
 
-    private class TileRenderingTask implements Runnable, LIFOExecutor.Cancellable {
+    /**
+     * The adapter, and if it's built by a factory the
+     * adapter instance of each rendering thread.
+     */
+    private static class RenderingAdapters {
+
+        private final TilesViewAdapter adapter;
+        private final TilesViewAdapterFactory adapterFactory;
+        /** Weak keys, rendering threads are replaced when they time out */
+        private final Map<Thread, TilesViewAdapter> adaptersByThread;
+        private boolean released;
+
+        RenderingAdapters(TilesViewAdapter adapter, TilesViewAdapterFactory adapterFactory) {
+            this.adapter = adapter;
+            this.adapterFactory = adapterFactory;
+            this.adaptersByThread = adapterFactory != null ? new WeakHashMap<Thread, TilesViewAdapter>() : null;
+        }
+
+        /**
+         * @param uiThread True when rendering inline, which uses the adapter of the view.
+         * @return The adapter to use on the current rendering thread.
+         */
+        TilesViewAdapter get(boolean uiThread) {
+            if (adapterFactory == null || uiThread) return adapter;
+            Thread thread = Thread.currentThread();
+            synchronized (this) {
+                TilesViewAdapter renderingAdapter = adaptersByThread.get(thread);
+                if (renderingAdapter != null) return renderingAdapter;
+            }
+            TilesViewAdapter renderingAdapter = adapterFactory.newAdapter();
+            synchronized (this) {
+                // Rendering threads outlive the pool, don't keep adapters once released
+                if (!released) adaptersByThread.put(thread, renderingAdapter);
+            }
+            return renderingAdapter;
+        }
+
+        /**
+         * Drops the adapters of the rendering threads, and with them the view.
+         */
+        synchronized void release() {
+            released = true;
+            if (adaptersByThread != null) adaptersByThread.clear();
+        }
+    }
+
+    /**
+     * Base of the rendering tasks, stamped with the state
+     * of the pool at the time they were created.
+     */
+    private abstract class RenderingTask implements Runnable, CancellationToken {
+
+        final int generation;
+        final RenderingAdapters renderingAdapters;
+        final int backgroundColor;
+        final Tracer tracer;
+
+        RenderingTask() {
+            this.generation = TilePool.this.generation;
+            this.renderingAdapters = TilePool.this.renderingAdapters;
+            this.backgroundColor = tilesBackgroundColor;
+            this.tracer = TilePool.this.tracer;
+        }
+
+        /**
+         * @return True if the pool has been reset since this task was created.
+         */
+        boolean isStale() {
+            return generation != TilePool.this.generation;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return isStale();
+        }
+    }
+
+    private class PlaceholderRenderingTask extends RenderingTask {
+
+        final float contentWidth, contentHeight;
+
+        PlaceholderRenderingTask(float contentWidth, float contentHeight) {
+            this.contentWidth = contentWidth;
+            this.contentHeight = contentHeight;
+        }
+
+        @Override
+        public void run() {
+            if (isStale()) return;
+
+            TilesViewAdapter renderingAdapter = renderingAdapters.get(false);
+            if (renderingAdapter instanceof AsyncTilesViewAdapter) {
+                PlaceholderRequest request = new PlaceholderRequest(this);
+                placeholderRequest = request;
+                ((AsyncTilesViewAdapter) renderingAdapter).requestTile(request);
+                return;
+            }
+
+            Bitmap bitmap = Bitmap.createBitmap(
+                    (int) (contentWidth * PLACEHOLDER_RATIO),
+                    (int) (contentHeight * PLACEHOLDER_RATIO),
+                    Bitmap.Config.RGB_565);
+            Canvas canvas = new Canvas(bitmap);
+            canvas.drawColor(backgroundColor);
+            RenderingContext.setCancellationToken(this);
+            tracer.beginStage(Tracer.STAGE_DRAW_TILE, -1, -1, -1);
+            try {
+                renderingAdapter.drawTile(canvas,
+                        0f, 0f, 1f, 1f,
+                        contentWidth, contentHeight, 1f);
+            } finally {
+                tracer.endStage(Tracer.STAGE_DRAW_TILE);
+                RenderingContext.setCancellationToken(null);
+            }
+            publish(bitmap);
+        }
+
+        void publish(Bitmap bitmap) {
+            if (isStale()) {
+                bitmap.recycle();
+            } else {
+                placeholder = bitmap;
+            }
+            release();
+        }
+
+        void release() {
+            if (placeholderRunnable == this) {
+                placeholderRunnable = null;
+            }
+        }
+    }
+
+    private class TileRenderingTask extends RenderingTask implements LIFOExecutor.Cancellable, Tile.OnDeletedListener {
 
         final Tile tile;
-        final int xIndex, yIndex, zoomLevel;
+        final int xIndex, yIndex, zoomLevel, tileSize;
         final float contentWidth, contentHeight;
-        private final Bitmap existingBitmap;
+        /** Bitmap of an evicted tile to draw on, null if dropped under memory pressure */
+        private Bitmap existingBitmap;
+
+        /** Count the existing bitmap while this task is queued */
+        private AtomicLong queuedBitmapBytes;
+        private Set<TileRenderingTask> queuedBitmapTasks;
+
+        /** Rendered by getTile(), which draws it right away */
+        boolean inline;
+
+        /** Set when the tile is deleted, even if it's requested again later by another task */
+        private volatile boolean cancelled;
+
+        final RenderStatsRecorder stats;
+
+        /** System.nanoTime() at creation */
+        private final long creationTime;
+
+        /** Pinned tiles of a finer zoom level to downsample, null to use the adapter */
+        private Tile[] childTiles;
+        private Bitmap[] childBitmaps;
 
         public TileRenderingTask(Tile tile,
                                  int xIndex, int yIndex, int zoomLevel,
                                  float contentWidth, float contentHeight,
                                  Bitmap existingBitmap) {
             this.tile = tile;
+            tile.setRenderingTask(this);
             this.xIndex = xIndex;
             this.yIndex = yIndex;
             this.zoomLevel = zoomLevel;
+            this.tileSize = getTileSize(zoomLevel);
             this.contentWidth = contentWidth;
             this.contentHeight = contentHeight;
             this.existingBitmap = existingBitmap;
+            if (existingBitmap != null) {
+                queuedBitmapBytes = TilePool.this.queuedBitmapBytes;
+                queuedBitmapBytes.addAndGet(getSizeInBytes(existingBitmap));
+                queuedBitmapTasks = TilePool.this.queuedBitmapTasks;
+                queuedBitmapTasks.add(this);
+            }
+            this.stats = statsRecorder;
+            this.creationTime = System.nanoTime();
+        }
+
+        /**
+         * Builds the tile from the given tiles of a finer zoom level instead of the adapter.
+         * They are pinned, so that their bitmaps are not reused until this task is done.
+         * Must be called on the UI thread, before the task is submitted.
+         * @param childTiles The tiles covering this one, or null to use the adapter.
+         */
+        void setChildTiles(Tile[] childTiles) {
+            if (childTiles == null) return;
+            this.childBitmaps = new Bitmap[childTiles.length];
+            for (int i = 0; i < childTiles.length; i++) {
+                childTiles[i].pin();
+                childBitmaps[i] = childTiles[i].getBitmap();
+            }
+            this.childTiles = childTiles;
+        }
+
+        private synchronized void unpinChildTiles() {
+            if (childTiles == null) return;
+            for (int i = 0; i < childTiles.length; i++) {
+                childTiles[i].unpin();
+            }
+            childTiles = null;
+            childBitmaps = null;
+        }
+
+        /**
+         * @return The cost of this tile estimated by the adapter, if it can.
+         */
+        float estimateCost(TilesViewAdapter adapter) {
+            // Downsampling is among the cheapest tasks
+            if (childTiles != null) return 0f;
+            if (!(adapter instanceof TileCostEstimator)) return 0f;
+            float zoom = zoomLevel / 10f;
+            return ((TileCostEstimator) adapter).estimateTileCost(
+                    xIndex * tileSize / zoom / contentWidth,
+                    yIndex * tileSize / zoom / contentHeight,
+                    tileSize / zoom / contentWidth,
+                    tileSize / zoom / contentHeight,
+                    contentWidth, contentHeight, zoom);
+        }
+
+        /** The task is not queued anymore */
+        private void releaseQueuedBitmap() {
+            releaseQueuedBitmap(false);
+        }
+
+        /**
+         * Recycles the existing bitmap if the task is still queued,
+         * it draws on a new bitmap if it runs later.
+         */
+        void dropExistingBitmap() {
+            releaseQueuedBitmap(true);
+        }
+
+        private void releaseQueuedBitmap(boolean recycle) {
+            Set<TileRenderingTask> tasks;
+            Bitmap bitmap;
+            synchronized (this) {
+                if (queuedBitmapBytes == null) return;
+                bitmap = existingBitmap;
+                queuedBitmapBytes.addAndGet(-getSizeInBytes(bitmap));
+                queuedBitmapBytes = null;
+                tasks = queuedBitmapTasks;
+                queuedBitmapTasks = null;
+                if (recycle) existingBitmap = null;
+            }
+
+            // Outside of the lock of this task, trimMemory() locks the set first
+            tasks.remove(this);
+            if (recycle) bitmap.recycle();
         }
 
         @Override
         public void run() {
-            if (tile.isDeleted()) return;
+            releaseQueuedBitmap();
+            if (isCancelled()) {
+                unpinChildTiles();
+                if (stats != null) stats.onTileCancelled();
+                return;
+            }
+            if (!inline) {
+                long now = System.nanoTime();
+                if (stats != null) stats.recordQueueWait(now - creationTime);
+                tracer.traceStage(Tracer.STAGE_QUEUE_WAIT, zoomLevel, xIndex, yIndex, creationTime, now);
+            }
 
+            if (childTiles != null) {
+                boolean downsampled;
+                try {
+                    downsampled = downsample();
+                } finally {
+                    unpinChildTiles();
+                }
+                if (downsampled) return;
+            }
+
+            float zoom = zoomLevel / 10f;
+            float xRatio = xIndex * tileSize / zoom / contentWidth;
+            float yRatio = yIndex * tileSize / zoom / contentHeight;
+            float widthRatio = tileSize / zoom / contentWidth;
+            float heightRatio = tileSize / zoom / contentHeight;
+
+            // Asynchronous adapters only get a request, this thread is released right away
+            TilesViewAdapter renderingAdapter = renderingAdapters.get(inline);
+            if (renderingAdapter instanceof AsyncTilesViewAdapter) {
+                AsyncTileRequest request = new AsyncTileRequest(this,
+                        xRatio, yRatio, widthRatio, heightRatio, zoom);
+                tile.setPendingRequest(request);
+                if (cancelled) {
+                    // Deleted in the meantime, before the request could be cancelled
+                    request.cancel();
+                    return;
+                }
+                ((AsyncTilesViewAdapter) renderingAdapter).requestTile(request);
+                return;
+            }
+
+            long renderStart = System.nanoTime();
             Bitmap bitmap = existingBitmap != null ? existingBitmap :
-                    Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.RGB_565);
+                    Bitmap.createBitmap(tileSize, tileSize, Bitmap.Config.RGB_565);
             Canvas canvas = new Canvas(bitmap);
-            canvas.drawColor(tilesBackgroundColor);
-            float zoom = zoomLevel / 10f;
-            adapter.drawTile(canvas,
-                    xIndex * TILE_SIZE / zoom / contentWidth,
-                    yIndex * TILE_SIZE / zoom / contentHeight,
-                    TILE_SIZE / zoom / contentWidth,
-                    TILE_SIZE / zoom / contentHeight,
-                    contentWidth, contentHeight, zoom);
-            tile.setBitmap(bitmap);
+            canvas.drawColor(backgroundColor);
+            RenderingContext.setCancellationToken(this);
+            tracer.beginStage(Tracer.STAGE_DRAW_TILE, zoomLevel, xIndex, yIndex);
+            try {
+                renderingAdapter.drawTile(canvas,
+                        xRatio, yRatio, widthRatio, heightRatio,
+                        contentWidth, contentHeight, zoom);
+            } finally {
+                tracer.endStage(Tracer.STAGE_DRAW_TILE);
+                RenderingContext.setCancellationToken(null);
+            }
+            long renderDuration = System.nanoTime() - renderStart;
+            if (stats != null) stats.recordRenderTime(renderDuration);
+            tile.setRenderInfo(inline ? Tile.SOURCE_INLINE : Tile.SOURCE_RENDERED, renderDuration);
+            if (inline) {
+                setTileBitmap(tile, bitmap);
+                publishedTiles.incrementAndGet();
+                onPublished(true);
+            } else {
+                onPublished(publish(bitmap));
+            }
+        }
 
-            // Can happen from getTile() on main thread.
-            if (!tile.isDeleted()) {
-                tilePoolListener.onTileRendered(tile);
+        /**
+         * Draws the child tiles scaled down, without calling the adapter.
+         * @return False if a child bitmap has been released, the adapter must render the tile instead.
+         */
+        private boolean downsample() {
+            for (int i = 0; i < childBitmaps.length; i++) {
+                Bitmap childBitmap = childBitmaps[i];
+                if (childBitmap == null || childBitmap.isRecycled()) return false;
+            }
 
+            long renderStart = System.nanoTime();
+            Bitmap bitmap = existingBitmap != null ? existingBitmap :
+                    Bitmap.createBitmap(tileSize, tileSize, Bitmap.Config.RGB_565);
+            Canvas canvas = new Canvas(bitmap);
+            canvas.drawColor(backgroundColor);
+            RectF childRect = new RectF();
+            tracer.beginStage(Tracer.STAGE_DRAW_TILE, zoomLevel, xIndex, yIndex);
+            try {
+                for (int i = 0; i < childTiles.length; i++) {
+                    Tile childTile = childTiles[i];
+                    Bitmap childBitmap = childBitmaps[i];
+                    int childZoomLevel = childTile.getZoomLevel();
+                    float childTileSize = getTileSize(childZoomLevel) * zoomLevel / (float) childZoomLevel;
+                    float left = childTile.getxIndex() * childTileSize - xIndex * tileSize;
+                    float top = childTile.getyIndex() * childTileSize - yIndex * tileSize;
+                    childRect.set(left, top, left + childTileSize, top + childTileSize);
+                    canvas.drawBitmap(childBitmap, null, childRect, DOWNSAMPLING_PAINT);
+                }
+            } finally {
+                tracer.endStage(Tracer.STAGE_DRAW_TILE);
+            }
+            tile.setRenderInfo(Tile.SOURCE_DOWNSAMPLED, System.nanoTime() - renderStart);
+            if (inline) {
+                setTileBitmap(tile, bitmap);
+                publishedTiles.incrementAndGet();
+                onPublished(true);
             } else {
+                onPublished(publish(bitmap));
+            }
+            return true;
+        }
+
+        /**
+         * @return False if the tile is not needed anymore.
+         */
+        boolean publish(Bitmap bitmap) {
+            if (cancelled) {
+                // The tile may have been requested again, by another task
                 bitmap.recycle();
+                return false;
+            }
+            tracer.beginStage(Tracer.STAGE_PUBLISH, zoomLevel, xIndex, yIndex);
+            try {
+                return publishTile(tile, bitmap, generation);
+            } finally {
+                tracer.endStage(Tracer.STAGE_PUBLISH);
             }
         }
 
+        void onPublished(boolean published) {
+            if (stats == null) return;
+            if (published) {
+                stats.onTileRendered();
+            } else {
+                stats.onRenderWasted();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled || isStale();
+        }
+
+        @Override
+        public void onTileDeleted() {
+            cancelled = true;
+        }
+
         @Override
         public void cancel() {
 
             // Remove the tile
+            cancelled = true;
             tile.setDeleted(true);
+            releaseQueuedBitmap();
+            unpinChildTiles();
+            if (stats != null) stats.onTileCancelled();
+        }
+    }
+
+    /**
+     * Base of the requests given to an {@link AsyncTilesViewAdapter}.
+     */
+    private abstract class AsyncRequest implements TileRequest, LIFOExecutor.Cancellable {
+
+        final float xRatio, yRatio, widthRatio, heightRatio;
+        final float contentWidth, contentHeight, scale;
+        final int width, height;
+        final RenderingTask task;
+        private boolean cancelled, completed;
+        private OnCancelListener onCancelListener;
+
+        AsyncRequest(RenderingTask task,
+                     float xRatio, float yRatio,
+                     float widthRatio, float heightRatio,
+                     float contentWidth, float contentHeight, float scale,
+                     int width, int height) {
+            this.task = task;
+            this.xRatio = xRatio;
+            this.yRatio = yRatio;
+            this.widthRatio = widthRatio;
+            this.heightRatio = heightRatio;
+            this.contentWidth = contentWidth;
+            this.contentHeight = contentHeight;
+            this.scale = scale;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public float getXRatio() {
+            return xRatio;
+        }
+
+        @Override
+        public float getYRatio() {
+            return yRatio;
+        }
+
+        @Override
+        public float getWidthRatio() {
+            return widthRatio;
+        }
+
+        @Override
+        public float getHeightRatio() {
+            return heightRatio;
+        }
+
+        @Override
+        public float getContentInitialWidth() {
+            return contentWidth;
+        }
+
+        @Override
+        public float getContentInitialHeight() {
+            return contentHeight;
+        }
+
+        @Override
+        public float getScale() {
+            return scale;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            synchronized (this) {
+                if (cancelled) return true;
+            }
+            return task.isCancelled();
+        }
+
+        @Override
+        public void setOnCancelListener(OnCancelListener onCancelListener) {
+            boolean alreadyCancelled;
+            synchronized (this) {
+                this.onCancelListener = onCancelListener;
+                alreadyCancelled = cancelled;
+            }
+            if (alreadyCancelled && onCancelListener != null) {
+                onCancelListener.onCancel(this);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            OnCancelListener listener;
+            synchronized (this) {
+                if (cancelled || completed) return;
+                cancelled = true;
+                listener = onCancelListener;
+            }
+            onCancelled();
+            if (listener != null) {
+                listener.onCancel(this);
+            }
+        }
+
+        @Override
+        public void complete(Bitmap content) {
+            synchronized (this) {
+                if (cancelled || completed) return;
+                completed = true;
+            }
+            onCompleted(content);
+        }
+
+        /** Fill the given canvas with the content provided by the adapter */
+        void drawContent(Canvas canvas, Bitmap content) {
+            canvas.drawColor(task.backgroundColor);
+            if (content != null && !content.isRecycled()) {
+                canvas.drawBitmap(content, null, new Rect(0, 0, width, height), ASYNC_CONTENT_PAINT);
+            }
+        }
+
+        abstract void onCompleted(Bitmap content);
+
+        void onCancelled() {
+            // Default do nothing
+        }
+    }
+
+    private class AsyncTileRequest extends AsyncRequest {
+
+        private final TileRenderingTask tileTask;
+        private final Tile tile;
+        private final Bitmap existingBitmap;
+        private final long requestTime;
+
+        AsyncTileRequest(TileRenderingTask task,
+                         float xRatio, float yRatio,
+                         float widthRatio, float heightRatio, float scale) {
+            super(task, xRatio, yRatio, widthRatio, heightRatio,
+                    task.contentWidth, task.contentHeight, scale,
+                    task.tileSize, task.tileSize);
+            this.tileTask = task;
+            this.tile = task.tile;
+            this.existingBitmap = task.existingBitmap;
+            this.requestTime = System.nanoTime();
+        }
+
+        @Override
+        void onCompleted(Bitmap content) {
+            tile.clearPendingRequest(this);
+            long renderDuration = System.nanoTime() - requestTime;
+            if (tileTask.stats != null) tileTask.stats.recordRenderTime(renderDuration);
+            tile.setRenderInfo(Tile.SOURCE_ASYNC, renderDuration);
+            if (task.isCancelled()) {
+                tileTask.onPublished(false);
+                return;
+            }
+
+            Bitmap bitmap = existingBitmap != null ? existingBitmap :
+                    Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            drawContent(new Canvas(bitmap), content);
+            tileTask.onPublished(tileTask.publish(bitmap));
+        }
+
+        @Override
+        void onCancelled() {
+            if (tileTask.stats != null) tileTask.stats.onTileCancelled();
+        }
+    }
+
+    private class PlaceholderRequest extends AsyncRequest {
+
+        private final PlaceholderRenderingTask placeholderTask;
+
+        PlaceholderRequest(PlaceholderRenderingTask task) {
+            super(task, 0f, 0f, 1f, 1f,
+                    task.contentWidth, task.contentHeight, 1f,
+                    (int) (task.contentWidth * PLACEHOLDER_RATIO),
+                    (int) (task.contentHeight * PLACEHOLDER_RATIO));
+            this.placeholderTask = task;
+        }
+
+        @Override
+        void onCompleted(Bitmap content) {
+            if (placeholderRequest == this) placeholderRequest = null;
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            drawContent(new Canvas(bitmap), content);
+            placeholderTask.publish(bitmap);
+        }
+
+        @Override
+        void onCancelled() {
+            if (placeholderRequest == this) placeholderRequest = null;
+            placeholderTask.release();
         }
     }
 }
@@ -0,0 +1,45 @@
+package com.joanzapata.tilesview.tracer;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.joanzapata.tilesview.Tracer;
+
+/**
+ * Sends the stages to systrace with {@link Trace}, from API 18, ignores them before.
+ * Stages about a tile are named after it, for example "TilesView drawTile 20/3/7"
+ * for the tile 3,7 of the zoom level 20. The queue wait, which doesn't belong to a
+ * thread, shows as an empty section on the rendering thread when the tile starts.
+ */
+public class AndroidTracer implements Tracer {
+
+    private static final String[] STAGE_NAMES = {
+            "TilesView getTile", "TilesView enqueue", "TilesView queueWait",
+            "TilesView drawTile", "TilesView publish", "TilesView onDraw"};
+
+    @Override
+    public void beginStage(int stage, int zoomLevel, int xIndex, int yIndex) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) return;
+        Trace.beginSection(getSectionName(stage, zoomLevel, xIndex, yIndex));
+    }
+
+    @Override
+    public void endStage(int stage) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) return;
+        Trace.endSection();
+    }
+
+    @Override
+    public void traceStage(int stage, int zoomLevel, int xIndex, int yIndex, long startNanos, long endNanos) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) return;
+        Trace.beginSection(getSectionName(stage, zoomLevel, xIndex, yIndex)
+                + " " + (endNanos - startNanos) / 1000 + "us");
+        Trace.endSection();
+    }
+
+    private static String getSectionName(int stage, int zoomLevel, int xIndex, int yIndex) {
+        // Tile lookups are too frequent to allocate a name for each of them
+        if (zoomLevel == -1 || stage == STAGE_GET_TILE) return STAGE_NAMES[stage];
+        return STAGE_NAMES[stage] + " " + zoomLevel + "/" + xIndex + "/" + yIndex;
+    }
+}
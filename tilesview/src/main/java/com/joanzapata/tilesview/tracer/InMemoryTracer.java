@@ -0,0 +1,137 @@
+package com.joanzapata.tilesview.tracer;
+
+import com.joanzapata.tilesview.Tracer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the stages in memory, up to a maximum number, to inspect them
+ * in tests or benchmarks running on the JVM.
+ */
+public class InMemoryTracer implements Tracer {
+
+    private final int capacity;
+
+    private final List<Stage> stages;
+
+    /** Stages begun and not ended yet on each thread */
+    private final ThreadLocal<List<Stage>> openStagesTL = new ThreadLocal<List<Stage>>() {
+        @Override
+        protected List<Stage> initialValue() {
+            return new ArrayList<Stage>();
+        }
+    };
+
+    /**
+     * @param capacity Maximum number of stages kept, the next ones are ignored.
+     */
+    public InMemoryTracer(int capacity) {
+        this.capacity = capacity;
+        this.stages = new ArrayList<Stage>();
+    }
+
+    @Override
+    public void beginStage(int stage, int zoomLevel, int xIndex, int yIndex) {
+        openStagesTL.get().add(new Stage(stage, zoomLevel, xIndex, yIndex,
+                Thread.currentThread().getName(), System.nanoTime()));
+    }
+
+    @Override
+    public void endStage(int stage) {
+        List<Stage> openStages = openStagesTL.get();
+        if (openStages.isEmpty()) return;
+        Stage openStage = openStages.remove(openStages.size() - 1);
+        openStage.endNanos = System.nanoTime();
+        add(openStage);
+    }
+
+    @Override
+    public void traceStage(int stage, int zoomLevel, int xIndex, int yIndex, long startNanos, long endNanos) {
+        Stage traced = new Stage(stage, zoomLevel, xIndex, yIndex, null, startNanos);
+        traced.endNanos = endNanos;
+        add(traced);
+    }
+
+    private synchronized void add(Stage stage) {
+        if (stages.size() < capacity) stages.add(stage);
+    }
+
+    /**
+     * @return The stages which are over, in the order they ended.
+     */
+    public synchronized List<Stage> getStages() {
+        return new ArrayList<Stage>(stages);
+    }
+
+    /**
+     * @return The stages of the given type which are over, in the order they ended.
+     */
+    public synchronized List<Stage> getStages(int stage) {
+        List<Stage> result = new ArrayList<Stage>();
+        for (int i = 0, size = stages.size(); i < size; i++) {
+            if (stages.get(i).stage == stage) result.add(stages.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return The stages which overlap the given one, for example the tiles
+     * drawn or the queue waits during a slow {@link #STAGE_ON_DRAW}.
+     */
+    public synchronized List<Stage> getStagesDuring(Stage stage) {
+        List<Stage> result = new ArrayList<Stage>();
+        for (int i = 0, size = stages.size(); i < size; i++) {
+            Stage other = stages.get(i);
+            if (other != stage && other.startNanos < stage.endNanos && stage.startNanos < other.endNanos) {
+                result.add(other);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        stages.clear();
+    }
+
+    public static class Stage {
+
+        public final int stage;
+
+        public final int zoomLevel, xIndex, yIndex;
+
+        /** Null for the stages which didn't run on a single thread */
+        public final String threadName;
+
+        public final long startNanos;
+
+        long endNanos;
+
+        Stage(int stage, int zoomLevel, int xIndex, int yIndex, String threadName, long startNanos) {
+            this.stage = stage;
+            this.zoomLevel = zoomLevel;
+            this.xIndex = xIndex;
+            this.yIndex = yIndex;
+            this.threadName = threadName;
+            this.startNanos = startNanos;
+        }
+
+        public long getEndNanos() {
+            return endNanos;
+        }
+
+        public long getDurationNanos() {
+            return endNanos - startNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Stage{" +
+                    "stage=" + stage +
+                    ", tile=" + zoomLevel + "/" + xIndex + "/" + yIndex +
+                    ", thread=" + threadName +
+                    ", duration=" + getDurationNanos() / 1000 + "us" +
+                    '}';
+        }
+    }
+}
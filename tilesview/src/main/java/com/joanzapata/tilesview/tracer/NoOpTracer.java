@@ -0,0 +1,26 @@
+package com.joanzapata.tilesview.tracer;
+
+import com.joanzapata.tilesview.Tracer;
+
+/**
+ * The default tracer, which ignores everything.
+ */
+public final class NoOpTracer implements Tracer {
+
+    public static final NoOpTracer INSTANCE = new NoOpTracer();
+
+    private NoOpTracer() {
+    }
+
+    @Override
+    public void beginStage(int stage, int zoomLevel, int xIndex, int yIndex) {
+    }
+
+    @Override
+    public void endStage(int stage) {
+    }
+
+    @Override
+    public void traceStage(int stage, int zoomLevel, int xIndex, int yIndex, long startNanos, long endNanos) {
+    }
+}
@@ -8,6 +8,10 @@ import android.view.ScaleGestureDetector;
 import android.view.View;
 import android.widget.OverScroller;
 
+import com.joanzapata.tilesview.internal.GestureRecorder;
+
+import static com.joanzapata.tilesview.internal.GestureRecorder.*;
+
 public class ScrollAndZoomDetector implements GestureDetector.OnGestureListener, ScaleGestureDetector.OnScaleGestureListener, GestureDetector.OnDoubleTapListener {
 
     private final ScrollAndZoomListener scrollAndZoomListener;
@@ -22,6 +26,9 @@ public class ScrollAndZoomDetector implements GestureDetector.OnGestureListener,
 
     private float lastScaleFocusX, lastScaleFocusY, lastScaleFactor;
 
+    /** Null unless gestures are recorded */
+    private GestureRecorder gestureRecorder;
+
     public ScrollAndZoomDetector(Context context, View referenceView, ScrollAndZoomListener scrollAndZoomListener) {
         this.referenceView = referenceView;
         this.gestureDetector = new GestureDetector(context, this);
@@ -32,8 +39,18 @@ public class ScrollAndZoomDetector implements GestureDetector.OnGestureListener,
         this.overScroller = new OverScroller(context);
     }
 
+    /**
+     * Records the gestures received from now on, only the ones made by the
+     * user, not the scrolls of the flings. Null to stop recording.
+     */
+    public void setGestureRecorder(GestureRecorder gestureRecorder) {
+        this.gestureRecorder = gestureRecorder;
+    }
+
     @Override
     public boolean onDown(MotionEvent e) {
+        if (gestureRecorder != null)
+            gestureRecorder.record(EVENT_DOWN, 0, 0, 0);
         scrollAndZoomListener.onDown();
         if (overScroller != null)
             overScroller.forceFinished(true);
@@ -52,6 +69,8 @@ public class ScrollAndZoomDetector implements GestureDetector.OnGestureListener,
 
     @Override
     public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+        if (gestureRecorder != null)
+            gestureRecorder.record(EVENT_SCROLL, distanceX, distanceY, 0);
         return scrollAndZoomListener.onScroll(distanceX, distanceY);
     }
 
@@ -62,6 +81,9 @@ public class ScrollAndZoomDetector implements GestureDetector.OnGestureListener,
 
     @Override
     public boolean onFling(final MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+        if (gestureRecorder != null)
+            gestureRecorder.record(EVENT_FLING, velocityX, velocityY, 0);
+
         Runnable animation = new Runnable() {
 
             float currX = e1.getX();
@@ -98,6 +120,8 @@ public class ScrollAndZoomDetector implements GestureDetector.OnGestureListener,
         lastScaleFocusX = detector.getFocusX();
         lastScaleFocusY = detector.getFocusY();
         lastScaleFactor = detector.getScaleFactor();
+        if (gestureRecorder != null)
+            gestureRecorder.record(EVENT_SCALE, lastScaleFactor, lastScaleFocusX, lastScaleFocusY);
         return scrollAndZoomListener.onScale(detector.getScaleFactor(),
                 detector.getFocusX(), detector.getFocusY());
     }
@@ -109,6 +133,8 @@ public class ScrollAndZoomDetector implements GestureDetector.OnGestureListener,
 
     @Override
     public void onScaleEnd(ScaleGestureDetector detector) {
+        if (gestureRecorder != null)
+            gestureRecorder.record(EVENT_SCALE_END, lastScaleFocusX, lastScaleFocusY, lastScaleFactor);
         scrollAndZoomListener.onScaleEnd(lastScaleFocusX, lastScaleFocusY, lastScaleFactor);
     }
 
@@ -126,6 +152,8 @@ public class ScrollAndZoomDetector implements GestureDetector.OnGestureListener,
     @Override
     public boolean onDoubleTapEvent(MotionEvent e) {
         if (e.getActionMasked() == MotionEvent.ACTION_UP) {
+            if (gestureRecorder != null)
+                gestureRecorder.record(EVENT_DOUBLE_TAP, e.getX(), e.getY(), 0);
             scrollAndZoomListener.onDoubleTap(e.getX(), e.getY());
         }
         return true;